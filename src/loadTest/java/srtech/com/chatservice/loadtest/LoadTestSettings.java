@@ -0,0 +1,51 @@
+package srtech.com.chatservice.loadtest;
+
+/**
+ * Knobs for the load harness, read from {@code -Dloadtest.*} system properties.
+ *
+ * @param sessions         number of concurrent STOMP sessions to open
+ * @param rooms            number of rooms the sessions are spread across
+ * @param distribution     how sessions are spread over rooms: {@code uniform} or {@code zipf}
+ * @param zipfExponent     skew of the zipf distribution, higher means a few very large rooms
+ * @param messagesPerSecond total send rate across all sessions
+ * @param durationSeconds  how long to keep sending once all sessions are connected
+ * @param connectParallelism how many handshakes are in flight at once while ramping up
+ */
+public record LoadTestSettings(
+        int sessions,
+        int rooms,
+        String distribution,
+        double zipfExponent,
+        int messagesPerSecond,
+        int durationSeconds,
+        int connectParallelism
+) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.sessions", 1000),
+                Integer.getInteger("loadtest.rooms", 50),
+                System.getProperty("loadtest.distribution", "zipf"),
+                Double.parseDouble(System.getProperty("loadtest.zipfExponent", "1.1")),
+                Integer.getInteger("loadtest.rate", 200),
+                Integer.getInteger("loadtest.durationSeconds", 30),
+                Integer.getInteger("loadtest.connectParallelism", 64)
+        );
+    }
+
+    /**
+     * Cumulative room weights used to assign sessions to rooms.
+     */
+    public double[] roomWeights() {
+        double[] cumulative = new double[rooms];
+        double total = 0;
+        for (int i = 0; i < rooms; i++) {
+            total += "uniform".equalsIgnoreCase(distribution) ? 1.0 : 1.0 / Math.pow(i + 1, zipfExponent);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < rooms; i++) {
+            cumulative[i] /= total;
+        }
+        return cumulative;
+    }
+}
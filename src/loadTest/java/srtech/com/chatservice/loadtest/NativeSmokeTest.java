@@ -0,0 +1,127 @@
+package srtech.com.chatservice.loadtest;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Boots the native executable against embedded Kafka, an in-process Redis stand-in and in-memory H2,
+ * and checks that it reports ready and accepts a WebSocket connection. Run it with
+ * {@code gradle -Pnative nativeSmokeTest}, which builds the binary first.
+ */
+class NativeSmokeTest {
+
+    private static final Logger log = LoggerFactory.getLogger(NativeSmokeTest.class);
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private static EmbeddedKafkaBroker kafka;
+    private static RedisServer redis;
+
+    @BeforeAll
+    static void startStandIns() throws Exception {
+        kafka = new EmbeddedKafkaKraftBroker(1, 3, "chat-messages", "user-presence", "room-events");
+        kafka.afterPropertiesSet();
+        redis = RedisServer.newRedisServer();
+        redis.start();
+    }
+
+    @AfterAll
+    static void stopStandIns() throws Exception {
+        if (redis != null) {
+            redis.stop();
+        }
+        if (kafka != null) {
+            kafka.destroy();
+        }
+    }
+
+    @Test
+    void nativeBinaryBootsAndAcceptsConnections() throws Exception {
+        String binary = System.getProperty("native.binary", "build/native/nativeCompile/chat-service");
+        assumeTrue(Files.isExecutable(Path.of(binary)), "Native binary not built: " + binary);
+
+        int port = freePort();
+        File output = File.createTempFile("native-smoke", ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(List.of(
+                binary,
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:h2:mem:smoke;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;NON_KEYWORDS=TIMESTAMP,VALUE,KEY",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.globally_quoted_identifiers=true",
+                "--spring.kafka.bootstrap-servers=" + kafka.getBrokersAsString(),
+                "--chat.kafka.schema-mode=local",
+                "--spring.data.redis.host=" + redis.getHost(),
+                "--spring.data.redis.port=" + redis.getBindPort()))
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            awaitReady(client, process, port, output);
+            log.info("Native binary ready after {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            WebSocket socket = client.newWebSocketBuilder()
+                    .buildAsync(URI.create("ws://localhost:" + port + "/ws-native"), new WebSocket.Listener() {
+                    })
+                    .get(5, TimeUnit.SECONDS);
+            socket.abort();
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static void awaitReady(HttpClient client, Process process, int port, File output) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertThat(process.isAlive()).as("native process alive, see %s", output).isTrue();
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException notYet) {
+                // Not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        throw new AssertionError("Native binary not ready within " + STARTUP_TIMEOUT + ", see " + output);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
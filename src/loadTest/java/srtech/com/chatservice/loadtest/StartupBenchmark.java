@@ -0,0 +1,119 @@
+package srtech.com.chatservice.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time to first accepted WebSocket connection: from launching the application JVM until a
+ * handshake on {@code /ws-native} succeeds.
+ * <p>
+ * Each variant is started {@code startup.runs} times in a fresh JVM: {@code default} is the plain boot,
+ * {@code fast-startup} activates the startup-optimized profile, and {@code fast-startup+cds} additionally
+ * uses the AppCDS archive built by {@code gradle cdsArchive}. The application talks to the usual
+ * Postgres, Redis and Kafka, so those have to be running. Start it with {@code gradle startupBenchmark}.
+ */
+public final class StartupBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+    private static final String MAIN_CLASS = "srtech.com.chatservice.ChatServiceApplication";
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String classpath = System.getProperty("startup.appClasspath");
+        Path archive = Path.of(System.getProperty("startup.cdsArchive", "build/cds/chat-service.jsa"));
+        Path logDir = Path.of(System.getProperty("startup.logDir", "build/startup-benchmark"));
+        int runs = Integer.getInteger("startup.runs", 3);
+        int port = Integer.getInteger("startup.port", 18080);
+        Duration timeout = Duration.ofSeconds(Integer.getInteger("startup.timeoutSeconds", 180));
+        List<String> variants = Arrays.asList(
+                System.getProperty("startup.variants", "default,fast-startup,fast-startup+cds").split(","));
+        Files.createDirectories(logDir);
+
+        for (String variant : variants) {
+            List<String> command = command(variant.trim(), classpath, archive, port);
+            if (command == null) {
+                log.warn("Skipping {}: no CDS archive at {}, run gradle cdsArchive first", variant, archive);
+                continue;
+            }
+            List<Long> millis = new ArrayList<>(runs);
+            for (int run = 1; run <= runs; run++) {
+                File output = logDir.resolve(variant.trim() + "-" + run + ".log").toFile();
+                millis.add(timeToFirstConnection(command, port, timeout, output));
+                log.info("{} run {}: {} ms", variant, run, millis.get(millis.size() - 1));
+            }
+            Collections.sort(millis);
+            log.info("{}: min {} ms, median {} ms, max {} ms over {} runs",
+                    variant, millis.get(0), millis.get(millis.size() / 2), millis.get(millis.size() - 1), runs);
+        }
+    }
+
+    private static List<String> command(String variant, String classpath, Path archive, int port) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (variant.endsWith("+cds")) {
+            if (!Files.exists(archive)) {
+                return null;
+            }
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--server.port=" + port);
+        if (variant.startsWith("fast-startup")) {
+            command.add("--spring.profiles.active=fast-startup");
+        }
+        return command;
+    }
+
+    private static long timeToFirstConnection(List<String> command, int port, Duration timeout, File output)
+            throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("ws://localhost:" + port + "/ws-native");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(output)
+                .start();
+        try {
+            while (System.nanoTime() - start < timeout.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ", see " + output);
+                }
+                try {
+                    WebSocket socket = client.newWebSocketBuilder()
+                            .connectTimeout(Duration.ofSeconds(1))
+                            .buildAsync(uri, new WebSocket.Listener() {
+                            })
+                            .get(2, TimeUnit.SECONDS);
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    socket.abort();
+                    return elapsed;
+                } catch (Exception notYet) {
+                    TimeUnit.MILLISECONDS.sleep(20);
+                }
+            }
+            throw new IllegalStateException("No WebSocket connection accepted within " + timeout + ", see " + output);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
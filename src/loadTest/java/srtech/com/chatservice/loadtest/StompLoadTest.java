@@ -0,0 +1,292 @@
+package srtech.com.chatservice.loadtest;
+
+import com.github.fppt.jedismock.RedisServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+import srtech.com.chatservice.domain.Role;
+import srtech.com.chatservice.domain.User;
+import srtech.com.chatservice.feature.user.repository.RoleRepository;
+import srtech.com.chatservice.feature.user.repository.UserRepository;
+import srtech.com.chatservice.security.CustomUserDetail;
+import srtech.com.chatservice.security.TokenGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Headless load generator: opens many SockJS/STOMP sessions against {@code /ws}, drives
+ * {@code /app/chat.sendMessage/{roomId}} at a fixed rate and reports fan-out latency percentiles,
+ * measured from the client send to every subscriber's receipt of the broadcast.
+ * <p>
+ * Runs against embedded Kafka, an in-process Redis stand-in and in-memory H2, so it needs no
+ * external infrastructure. Start it with {@code gradle loadTest -Dloadtest.sessions=5000}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EmbeddedKafka(partitions = 3, topics = {"chat-messages", "user-presence"},
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class StompLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StompLoadTest.class);
+    private static final String LATENCY_MARKER = "lt:";
+    private static final RedisServer redisServer = startRedis();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private TokenGenerator tokenGenerator;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    private final Histogram latencyMicros = new ConcurrentHistogram(3);
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong expectedDeliveries = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+
+    private static RedisServer startRedis() {
+        try {
+            RedisServer server = RedisServer.newRedisServer();
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", redisServer::getHost);
+        registry.add("spring.data.redis.port", redisServer::getBindPort);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redisServer.stop();
+    }
+
+    @Test
+    void fanOutLatency() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        log.info("Starting load test with {}", settings);
+
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, embeddedKafka.getPartitionsPerTopic());
+        }
+
+        List<LoadUser> users = createUsers(settings);
+        int[] roomSizes = new int[settings.rooms()];
+        users.forEach(user -> roomSizes[user.room()]++);
+        log.info("Room sizes: {}", Arrays.toString(roomSizes));
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new SockJsClient(
+                List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setInboundMessageSizeLimit(256 * 1024);
+
+        List<StompSession> sessions = connect(stompClient, users, settings);
+        for (int i = 0; i < sessions.size(); i++) {
+            sessions.get(i).subscribe("/topic/room/" + roomId(users.get(i).room()), new LatencyRecorder());
+        }
+        // The simple broker has no subscription receipts, give the SUBSCRIBE frames time to land
+        TimeUnit.SECONDS.sleep(2);
+
+        long start = System.nanoTime();
+        ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor();
+        double perTick = settings.messagesPerSecond() / 100.0;
+        double[] carry = {0};
+        sender.scheduleAtFixedRate(() -> {
+            carry[0] += perTick;
+            int count = (int) carry[0];
+            carry[0] -= count;
+            for (int i = 0; i < count; i++) {
+                int index = ThreadLocalRandom.current().nextInt(sessions.size());
+                send(sessions.get(index), users.get(index), roomSizes);
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        TimeUnit.SECONDS.sleep(settings.durationSeconds());
+        sender.shutdownNow();
+        // Let in-flight messages drain through Kafka and the broker
+        TimeUnit.SECONDS.sleep(5);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        report(settings, elapsedSeconds);
+
+        sessions.forEach(StompSession::disconnect);
+        stompClient.stop();
+
+        assertThat(delivered.get()).isPositive();
+    }
+
+    private List<LoadUser> createUsers(LoadTestSettings settings) {
+        Role role = roleRepository.findByName("USER").orElseThrow();
+        List<User> entities = new ArrayList<>(settings.sessions());
+        for (int i = 0; i < settings.sessions(); i++) {
+            User user = new User();
+            user.setUserName("load-" + i);
+            user.setEmail("load-" + i + "@loadtest.local");
+            user.setPassword("not-used");
+            user.setRoles(List.of(role));
+            entities.add(user);
+        }
+
+        double[] weights = settings.roomWeights();
+        Random random = new Random(42);
+        List<LoadUser> users = new ArrayList<>(settings.sessions());
+        for (User user : userRepository.saveAll(entities)) {
+            CustomUserDetail userDetail = new CustomUserDetail();
+            userDetail.setUser(user);
+            Authentication authentication =
+                    new UsernamePasswordAuthenticationToken(userDetail, "", userDetail.getAuthorities());
+            users.add(new LoadUser(
+                    user.getId().toString(),
+                    user.getUserName(),
+                    tokenGenerator.generateTokens(authentication).accessToken(),
+                    pickRoom(weights, random.nextDouble())));
+        }
+        return users;
+    }
+
+    private List<StompSession> connect(WebSocketStompClient stompClient, List<LoadUser> users,
+                                       LoadTestSettings settings) throws Exception {
+        String url = "ws://localhost:" + port + "/ws";
+        Semaphore inFlight = new Semaphore(settings.connectParallelism());
+        List<CompletableFuture<StompSession>> futures = new ArrayList<>(users.size());
+        long start = System.nanoTime();
+
+        for (LoadUser user : users) {
+            inFlight.acquire();
+            StompHeaders connectHeaders = new StompHeaders();
+            connectHeaders.add("Authorization", "Bearer " + user.token());
+            futures.add(stompClient
+                    .connectAsync(url, new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {})
+                    .whenComplete((session, ex) -> inFlight.release()));
+        }
+
+        List<StompSession> sessions = new ArrayList<>(futures.size());
+        for (CompletableFuture<StompSession> future : futures) {
+            sessions.add(future.get(60, TimeUnit.SECONDS));
+        }
+        log.info("Connected {} sessions in {} ms", sessions.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return sessions;
+    }
+
+    private void send(StompSession session, LoadUser user, int[] roomSizes) {
+        try {
+            session.send("/app/chat.sendMessage/" + roomId(user.room()), Map.of(
+                    "senderId", user.id(),
+                    "senderName", user.name(),
+                    "content", LATENCY_MARKER + System.nanoTime()));
+            sent.incrementAndGet();
+            expectedDeliveries.addAndGet(roomSizes[user.room()]);
+        } catch (Exception e) {
+            log.warn("Send failed for {}: {}", user.name(), e.getMessage());
+        }
+    }
+
+    private void report(LoadTestSettings settings, double elapsedSeconds) {
+        log.info("""
+
+                        ===== STOMP load test =====
+                        sessions={} rooms={} distribution={} targetRate={}/s
+                        sent={} ({} msg/s)  delivered={}/{} ({} deliveries/s)
+                        fan-out latency ms: p50={} p90={} p99={} p99.9={} max={}
+                        """,
+                settings.sessions(), settings.rooms(), settings.distribution(), settings.messagesPerSecond(),
+                sent.get(), Math.round(sent.get() / elapsedSeconds),
+                delivered.get(), expectedDeliveries.get(), Math.round(delivered.get() / elapsedSeconds),
+                millis(latencyMicros.getValueAtPercentile(50)),
+                millis(latencyMicros.getValueAtPercentile(90)),
+                millis(latencyMicros.getValueAtPercentile(99)),
+                millis(latencyMicros.getValueAtPercentile(99.9)),
+                millis(latencyMicros.getMaxValue()));
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+
+    private static int pickRoom(double[] cumulativeWeights, double sample) {
+        int index = Arrays.binarySearch(cumulativeWeights, sample);
+        return Math.min(index >= 0 ? index : -index - 1, cumulativeWeights.length - 1);
+    }
+
+    private static String roomId(int room) {
+        return "room-" + room;
+    }
+
+    private class LatencyRecorder implements StompFrameHandler {
+
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return Map.class;
+        }
+
+        @Override
+        public void handleFrame(StompHeaders headers, Object payload) {
+            Object content = ((Map<?, ?>) payload).get("content");
+            if (content instanceof String text && text.startsWith(LATENCY_MARKER)) {
+                long sentAt = Long.parseLong(text.substring(LATENCY_MARKER.length()));
+                latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+                delivered.incrementAndGet();
+            }
+        }
+    }
+
+    private record LoadUser(String id, String name, String token, int room) {
+    }
+}
@@ -2,10 +2,15 @@ package srtech.com.chatservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import srtech.com.chatservice.config.NativeHints;
 
 @SpringBootApplication
 @EnableKafka
+@EnableScheduling
+@ImportRuntimeHints(NativeHints.class)
 public class ChatServiceApplication {
 
     public static void main(String[] args) {
@@ -2,10 +2,14 @@ package srtech.com.chatservice.config;
 
 import io.confluent.kafka.serializers.KafkaAvroDeserializer;
 import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,17 +19,26 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.util.backoff.FixedBackOff;
+import srtech.com.chatservice.feature.kafka.LocalSchemaRegistry;
+import srtech.com.chatservice.feature.kafka.SingleObjectAvroDeserializer;
+import srtech.com.chatservice.feature.kafka.SingleObjectAvroSerializer;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Configuration
 @EnableKafka
+@RequiredArgsConstructor
 public class KafkaConfig {
 
+    private final MeterRegistry meterRegistry;
+    private final LocalSchemaRegistry localSchemaRegistry;
+
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
@@ -35,11 +48,33 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${chat.kafka.admin.auto-create:true}")
+    private boolean autoCreateTopics;
+
+    @Value("${chat.kafka.retry.interval-ms:500}")
+    private long retryIntervalMs;
+
+    @Value("${chat.kafka.retry.max-attempts:2}")
+    private long retryMaxAttempts;
+
+    /**
+     * {@code registry} uses the Confluent serializers and schema registry; {@code local} uses single-object
+     * encoding with schemas resolved in process, so no (de)serialization ever waits on the network.
+     */
+    @Value("${chat.kafka.schema-mode:registry}")
+    private String schemaMode;
+
+    public static final String DEAD_LETTER_SUFFIX = ".DLT";
+
+    public static final String SCHEMA_MODE_LOCAL = "local";
+
     @Bean
     public KafkaAdmin kafkaAdmin(){
         Map<String ,Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        return new KafkaAdmin(configs);
+        KafkaAdmin admin = new KafkaAdmin(configs);
+        admin.setAutoCreate(autoCreateTopics);
+        return admin;
     }
 
     @Bean
@@ -52,14 +87,37 @@ public class KafkaConfig {
         return new NewTopic("user-presence", 3, (short) 1);
     }
 
+    @Bean
+    public NewTopic roomEventTopic() {
+        // The directory listener assigns every partition by reading the count from this bean
+        return new NewTopic("room-events", 3, (short) 1);
+    }
+
+    @Bean
+    public NewTopic chatMessageDeadLetterTopic() {
+        return new NewTopic("chat-messages" + DEAD_LETTER_SUFFIX, 3, (short) 1);
+    }
+
+    @Bean
+    public NewTopic userPresenceDeadLetterTopic() {
+        return new NewTopic("user-presence" + DEAD_LETTER_SUFFIX, 3, (short) 1);
+    }
+
     @Bean
     public ProducerFactory<String ,Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
-        configProps.put("schema.registry.url", schemaRegistryUrl);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        DefaultKafkaProducerFactory<String, Object> factory;
+        if (isLocalSchemaMode()) {
+            factory = new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), new SingleObjectAvroSerializer());
+        } else {
+            configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaAvroSerializer.class);
+            configProps.put("schema.registry.url", schemaRegistryUrl);
+            factory = new DefaultKafkaProducerFactory<>(configProps);
+        }
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
@@ -67,6 +125,34 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory());
     }
 
+    /**
+     * Publishes raw bytes: records that failed deserialization, and dead letters being replayed.
+     */
+    @Bean
+    public KafkaTemplate<String, byte[]> byteArrayKafkaTemplate() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        DefaultKafkaProducerFactory<String, byte[]> factory = new DefaultKafkaProducerFactory<>(configProps);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return new KafkaTemplate<>(factory);
+    }
+
+    /**
+     * Sends records that exhausted their retries to {@code <topic>.DLT}, with the exception and the original
+     * topic, partition and offset in headers. Undeserializable values are forwarded as the original bytes.
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer() {
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, byteArrayKafkaTemplate());
+        templates.put(Object.class, kafkaTemplate());
+        return new DeadLetterPublishingRecoverer(templates,
+                (record, exception) -> new TopicPartition(record.topic() + DEAD_LETTER_SUFFIX, -1));
+    }
+
     @Bean
     public ConsumerFactory<String, Object> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -78,15 +164,25 @@ public class KafkaConfig {
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
 
-        // Delegate to actual deserializers
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, KafkaAvroDeserializer.class);
-
-        // Avro specific properties
-        props.put("schema.registry.url", schemaRegistryUrl);
-        props.put("specific.avro.reader", true);
-
-        return new DefaultKafkaConsumerFactory<>(props);
+        DefaultKafkaConsumerFactory<String, Object> factory;
+        if (isLocalSchemaMode()) {
+            factory = new DefaultKafkaConsumerFactory<>(props,
+                    new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                    new ErrorHandlingDeserializer<>(new SingleObjectAvroDeserializer(localSchemaRegistry)));
+        } else {
+            // Delegate to actual deserializers
+            props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
+            props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, KafkaAvroDeserializer.class);
+
+            // Avro specific properties
+            props.put("schema.registry.url", schemaRegistryUrl);
+            props.put("specific.avro.reader", true);
+            factory = new DefaultKafkaConsumerFactory<>(props);
+        }
+
+        // Exposes client metrics such as records-lag-max for the Prometheus endpoint
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
@@ -94,8 +190,9 @@ public class KafkaConfig {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
 
-        // Configure error handler
-        DefaultErrorHandler errorHandler = new DefaultErrorHandler(new FixedBackOff(1000L, 3));
+        // Short retries, then the record goes to the dead-letter topic instead of stalling the partition
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(deadLetterPublishingRecoverer(),
+                new FixedBackOff(retryIntervalMs, retryMaxAttempts));
         factory.setCommonErrorHandler(errorHandler);
 
         // Configure acknowledgment mode
@@ -104,5 +201,7 @@ public class KafkaConfig {
         return factory;
     }
 
-
+    private boolean isLocalSchemaMode() {
+        return SCHEMA_MODE_LOCAL.equalsIgnoreCase(schemaMode);
+    }
 }
@@ -0,0 +1,63 @@
+package srtech.com.chatservice.config;
+
+import com.chatengine.avro.CachedMessageAvro;
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.DirectMessageAvro;
+import com.chatengine.avro.GroupMessageAvro;
+import com.chatengine.avro.MessageType;
+import com.chatengine.avro.PresenceStatus;
+import com.chatengine.avro.RoomEventAvro;
+import com.chatengine.avro.RoomEventType;
+import com.chatengine.avro.UserPresenceAvro;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import srtech.com.chatservice.domain.ChatRoom;
+import srtech.com.chatservice.domain.dto.DirectMessageDto;
+import srtech.com.chatservice.domain.dto.GroupDto;
+import srtech.com.chatservice.domain.dto.GroupMessageDto;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.domain.dto.RoomSummary;
+import srtech.com.chatservice.domain.dto.UserDto;
+import srtech.com.chatservice.domain.dto.UserPresenceDto;
+import srtech.com.chatservice.feature.affinity.RoomAffinity;
+import srtech.com.chatservice.feature.user.mapper.UserMapper;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Reflection and resource hints for the native image that Spring AOT cannot infer from bean definitions.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Avro resolves generated classes and enums by schema name and instantiates them reflectively
+        Stream.of(ChatMessageAvro.class, UserPresenceAvro.class, RoomEventAvro.class, DirectMessageAvro.class,
+                        GroupMessageAvro.class, CachedMessageAvro.class, MessageType.class, PresenceStatus.class, RoomEventType.class)
+                .forEach(type -> hints.reflection().registerType(type, MemberCategory.values()));
+
+        // Kafka instantiates configured (de)serializers by class name
+        Stream.of(KafkaAvroSerializer.class, KafkaAvroDeserializer.class)
+                .forEach(type -> hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+
+        // Values stored in Redis with type information and payloads sent through the broker, which Spring
+        // does not see as controller signatures
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                MessageDto.class, UserPresenceDto.class, DirectMessageDto.class, GroupMessageDto.class,
+                GroupDto.class, UserDto.class, ChatRoom.class, RoomSummary.class);
+
+        // MapStruct's generated implementation, and what the SpEL in listener annotations calls
+        hints.reflection().registerType(TypeReference.of(UserMapper.class.getName() + "Impl"),
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        hints.reflection().registerType(RoomAffinity.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+        hints.reflection().registerType(UUID.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        hints.resources().registerPattern("static/**");
+    }
+}
@@ -8,6 +8,7 @@ import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -18,6 +19,8 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
@@ -29,8 +32,10 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import srtech.com.chatservice.security.CachingJwtDecoder;
 import srtech.com.chatservice.security.JwtToUserConverter;
 import srtech.com.chatservice.security.KeyUtils;
+import srtech.com.chatservice.security.TokenRevocationService;
 import srtech.com.chatservice.security.UserDetailServiceImpl;
 
 import java.util.Arrays;
@@ -43,10 +48,19 @@ public class SecurityConfiguration {
     private final UserDetailServiceImpl userDetailService;
     private final KeyUtils keyUtils;
     private final JwtToUserConverter jwtToUserConverter;
+    private final TokenRevocationService tokenRevocationService;
+
+    // BCrypt cost factor: every +1 doubles the time per hash, for registration and every login
+    @Value("${chat.security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // Verified access tokens kept per node, 0 verifies the signature on every request
+    @Value("${chat.security.jwt.cache-size:10000}")
+    private int jwtCacheSize;
 
     @Bean
     public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -79,9 +93,9 @@ public class SecurityConfiguration {
                                 // Allow access to static resources
                                 .requestMatchers("/", "/index.html", "/chat.js", "/style.css").permitAll()
                                 // Allow WebSocket connections
-                                .requestMatchers("/ws/**").permitAll()
-                                // Allow actuator health endpoint (optional)
-                                .requestMatchers("/actuator/health").permitAll()
+                                .requestMatchers("/ws/**", "/ws-native").permitAll()
+                                // Allow actuator health and metrics scraping
+                                .requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
                                 // Secure all other endpoints
                                 .anyRequest().authenticated()
                 )
@@ -115,9 +129,17 @@ public class SecurityConfiguration {
     @Bean
     @Qualifier("jwtRefreshTokenDecoder")
     JwtDecoder jwtRefreshTokenDecoder(){
-        return NimbusJwtDecoder
+        JwtDecoder decoder = NimbusJwtDecoder
                 .withPublicKey(keyUtils.getRefreshTokenPublicKey())
                 .build();
+        // Refreshes are rare, so every one checks revocation in Redis; nothing is cached
+        return token -> {
+            Jwt jwt = decoder.decode(token);
+            if (tokenRevocationService.isRevoked(TokenRevocationService.hash(token))) {
+                throw new BadJwtException("Token has been revoked");
+            }
+            return jwt;
+        };
     }
 
     @Bean
@@ -132,9 +154,12 @@ public class SecurityConfiguration {
     @Bean
     @Primary
     JwtDecoder jwtAccessTokenDecoder(){
-        return NimbusJwtDecoder
+        JwtDecoder decoder = NimbusJwtDecoder
                 .withPublicKey(keyUtils.getAccessTokenPublicKey())
                 .build();
+        return jwtCacheSize > 0
+                ? new CachingJwtDecoder(decoder, tokenRevocationService, jwtCacheSize)
+                : decoder;
     }
 
     @Bean
@@ -0,0 +1,24 @@
+package srtech.com.chatservice.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import srtech.com.chatservice.feature.kafka.KafkaConsumerService;
+import srtech.com.chatservice.feature.metrics.HotRoomTracker;
+import srtech.com.chatservice.feature.outbox.OutboxRelay;
+import srtech.com.chatservice.util.DataInitializer;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans that stay eager when {@code spring.main.lazy-initialization} is on: Kafka listeners and
+     * scheduled jobs are only registered once their bean exists, and the seed check has to run before the
+     * first login.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerChatBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                KafkaConsumerService.class, OutboxRelay.class, HotRoomTracker.class, DataInitializer.class);
+    }
+}
@@ -0,0 +1,32 @@
+package srtech.com.chatservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import srtech.com.chatservice.feature.websocket.BackpressureSubProtocolWebSocketHandler;
+import srtech.com.chatservice.feature.websocket.OutboundSessionRegistry;
+
+/**
+ * What {@code @EnableWebSocketMessageBroker} imports, with the STOMP handler replaced so that our outbound
+ * buffer is the outermost wrapper of every session. The broker itself is still configured by
+ * {@link WebSocketConfig}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    private final OutboundSessionRegistry outboundSessions;
+
+    public WebSocketBrokerConfiguration(OutboundSessionRegistry outboundSessions) {
+        this.outboundSessions = outboundSessions;
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        return new BackpressureSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel,
+                outboundSessions);
+    }
+}
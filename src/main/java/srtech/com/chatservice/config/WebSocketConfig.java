@@ -2,27 +2,65 @@ package srtech.com.chatservice.config;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import srtech.com.chatservice.feature.ratelimit.RateLimitErrorHandler;
+import srtech.com.chatservice.feature.ratelimit.RateLimitInterceptor;
+import srtech.com.chatservice.feature.websocket.AdmissionControl;
+import srtech.com.chatservice.feature.websocket.AdmissionHandshakeInterceptor;
+import srtech.com.chatservice.feature.websocket.AvroMessageConverter;
+import srtech.com.chatservice.feature.websocket.BinaryProtocolInterceptor;
+import srtech.com.chatservice.feature.websocket.ChatMessageJsonConverter;
+import srtech.com.chatservice.feature.websocket.CompressionHandshakeHandler;
+import srtech.com.chatservice.feature.websocket.FrameBatchingInterceptor;
+import srtech.com.chatservice.feature.websocket.NativeTransportHandshakeInterceptor;
+import srtech.com.chatservice.feature.websocket.ReceiveTimestampInterceptor;
+import srtech.com.chatservice.feature.websocket.RoomSubscriptions;
 import srtech.com.chatservice.security.WebSocketAuthenticationInterceptor;
 
+import java.util.List;
+
+/**
+ * Endpoints, broker and channel setup. The broker infrastructure itself is imported by
+ * {@link WebSocketBrokerConfiguration} rather than {@code @EnableWebSocketMessageBroker}.
+ */
 @Configuration
-@EnableWebSocketMessageBroker
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthenticationInterceptor webSocketAuthenticationInterceptor;
+    private final BinaryProtocolInterceptor binaryProtocolInterceptor;
+    private final FrameBatchingInterceptor frameBatchingInterceptor;
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final AdmissionControl admissionControl;
+    private final RoomSubscriptions roomSubscriptions;
+    private final ReceiveTimestampInterceptor receiveTimestampInterceptor;
+
+    @Value("${chat.websocket.native.compression-enabled:true}")
+    private boolean nativeCompressionEnabled;
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
+                .addInterceptors(new AdmissionHandshakeInterceptor(admissionControl))
                 .withSockJS();
+
+        // Plain WebSocket for modern clients: no SockJS framing, permessage-deflate when offered
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(new CompressionHandshakeHandler(nativeCompressionEnabled))
+                .addInterceptors(new AdmissionHandshakeInterceptor(admissionControl),
+                        new NativeTransportHandshakeInterceptor());
+
+        registry.setErrorHandler(new RateLimitErrorHandler());
     }
 
     @Override
@@ -33,6 +71,24 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketAuthenticationInterceptor);
+        // Receive time stamped before anything else; admission next so a saturated node refuses CONNECT
+        // before decoding the token; rate limiting needs the authentication resolved
+        registration.interceptors(receiveTimestampInterceptor, admissionControl, webSocketAuthenticationInterceptor,
+                rateLimitInterceptor, binaryProtocolInterceptor, frameBatchingInterceptor, roomSubscriptions);
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Opt-in binary bodies, only used for frames that declare the Avro content type
+        messageConverters.add(new AvroMessageConverter());
+        // Chat message bodies decoded straight into the Kafka record, ahead of the generic Jackson converter
+        messageConverters.add(new ChatMessageJsonConverter());
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Per-session outbound limits and slow-consumer handling are applied by WebSocketBrokerConfiguration
+        registration.addDecoratorFactory(admissionControl);
     }
 }
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import srtech.com.chatservice.feature.chat.ChatService;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
 import srtech.com.chatservice.feature.redis.RedisService;
 
 @Component
@@ -17,10 +18,12 @@ public class WebSocketEventListener {
 
     private final ChatService chatService;
     private final RedisService redisService;
+    private final ChatMetrics chatMetrics;
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
         log.info("New WebSocket connection established: {}", event.getMessage());
+        chatMetrics.sessionOpened(StompHeaderAccessor.wrap(event.getMessage()).getSessionId());
     }
 
     @EventListener
@@ -29,6 +32,7 @@ public class WebSocketEventListener {
         String sessionId = headerAccessor.getSessionId();
 
         log.info("WebSocket connection closed: {}", sessionId);
+        chatMetrics.sessionClosed(sessionId);
 
         // Here you would typically handle user disconnection
         // For example, update user presence to OFFLINE
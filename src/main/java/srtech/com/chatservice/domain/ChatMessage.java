@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "chat_message")
+@Table(name = "chat_message", indexes = @Index(name = "idx_chat_message_room_seq", columnList = "room_id, seq"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,6 +37,9 @@ public class ChatMessage {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    @Column(name = "seq")
+    private Long seq;
+
     @PrePersist
     public void prePersist() {
         if (this.id == null) {
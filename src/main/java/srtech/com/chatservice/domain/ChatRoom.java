@@ -9,7 +9,8 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "chat_rooms")
+// Serves the directory's newest-first order without sorting the table
+@Table(name = "chat_rooms", indexes = @Index(name = "idx_chat_rooms_created_at", columnList = "created_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,7 +25,7 @@ public class ChatRoom {
     @Column
     private String description;
 
-    @Column(nullable = false)
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     @ElementCollection
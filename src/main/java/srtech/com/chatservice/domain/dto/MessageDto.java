@@ -16,4 +16,6 @@ public class MessageDto {
     private String content;
     private ChatMessage.MessageType messageType;
     private long timestamp;
+    // Per-room sequence assigned on consumption, 0 for unsequenced JOIN/LEAVE notifications
+    private long seq;
 }
@@ -0,0 +1,21 @@
+package srtech.com.chatservice.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A room as listed in the directory: its own columns and the member count, without the members.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomSummary {
+    private String id;
+    private String name;
+    private String description;
+    private LocalDateTime createdAt;
+    private int memberCount;
+}
@@ -0,0 +1,73 @@
+package srtech.com.chatservice.feature.affinity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring with virtual nodes: adding or removing a node only moves the keys of its
+ * neighbours on the ring, so most rooms keep their owner when the cluster changes.
+ */
+public class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * The node owning the key: the first virtual node clockwise from the key's hash.
+     */
+    public String nodeFor(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("No nodes on the ring");
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * All nodes in the order they are met walking clockwise from the key's hash, the owner first.
+     */
+    public List<String> nodesFrom(String key) {
+        Set<String> nodes = new LinkedHashSet<>();
+        long hash = hash(key);
+        for (String node : ring.tailMap(hash, true).values()) {
+            nodes.add(node);
+        }
+        for (String node : ring.headMap(hash, false).values()) {
+            nodes.add(node);
+        }
+        return new ArrayList<>(nodes);
+    }
+
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package srtech.com.chatservice.feature.affinity;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Optional room-to-node affinity.
+ * <p>
+ * Every room has a fixed Kafka partition (its id's hash modulo the partition count), and partitions are
+ * placed on nodes with a consistent-hash ring: each partition goes to the first node clockwise from its
+ * position that still has room under a balanced load (every node gets {@code floor(p/n)} or one more).
+ * A room's owner is the owner of its partition, so the ring and the consumer assignment always agree. The
+ * owner consumes only its own partitions, so a room's caches and fan-out live on a single node, and clients
+ * are steered to that node when they connect.
+ * <p>
+ * When a node joins or leaves, partitions whose preferred node is unchanged and still within the load
+ * limit stay put: roughly {@code p/n} partitions move, plus the few displaced because the per-node limit
+ * changed. Rooms never change partition.
+ * <p>
+ * Members are configured as {@code id=url} pairs; the partition count must match the room topics and be
+ * at least the number of nodes.
+ */
+@Component("roomAffinity")
+@Slf4j
+public class RoomAffinity {
+
+    private final boolean enabled;
+    private final String self;
+    private final int partitions;
+    private final Map<String, String> nodeUrls = new LinkedHashMap<>();
+    private final List<String> members;
+    private final String[] partitionOwners;
+
+    public RoomAffinity(@Value("${chat.affinity.enabled:false}") boolean enabled,
+                        @Value("${chat.affinity.self:}") String self,
+                        @Value("${chat.affinity.nodes:}") List<String> nodes,
+                        @Value("${chat.affinity.partitions:3}") int partitions,
+                        @Value("${chat.affinity.virtual-nodes:128}") int virtualNodes) {
+        for (String node : nodes) {
+            String[] parts = node.split("=", 2);
+            if (!parts[0].isBlank()) {
+                nodeUrls.put(parts[0].trim(), parts.length > 1 ? parts[1].trim() : "");
+            }
+        }
+        this.members = nodeUrls.keySet().stream().sorted().toList();
+        this.partitions = partitions;
+        this.self = self;
+        this.enabled = enabled && validate();
+        this.partitionOwners = this.enabled
+                ? assignPartitions(new ConsistentHashRing(members, virtualNodes), members.size(), partitions)
+                : new String[0];
+        if (this.enabled) {
+            log.info("Room affinity enabled: node {} of {}, owns partitions {}", self, members, ownedPartitions());
+        }
+    }
+
+    private boolean validate() {
+        if (!members.contains(self)) {
+            log.error("Room affinity disabled: chat.affinity.self '{}' is not one of {}", self, members);
+            return false;
+        }
+        if (members.size() > partitions) {
+            log.error("Room affinity disabled: {} nodes but only {} partitions", members.size(), partitions);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Walk the ring from each partition's position to the first node under the balanced load limit.
+     */
+    static String[] assignPartitions(ConsistentHashRing ring, int nodeCount, int partitions) {
+        int base = partitions / nodeCount;
+        int extra = partitions % nodeCount;
+        Map<String, Integer> load = new HashMap<>();
+        int nodesAboveBase = 0;
+        String[] owners = new String[partitions];
+        for (int p = 0; p < partitions; p++) {
+            for (String node : ring.nodesFrom("partition-" + p)) {
+                int assigned = load.getOrDefault(node, 0);
+                if (assigned < base || (assigned == base && nodesAboveBase < extra)) {
+                    if (assigned == base) {
+                        nodesAboveBase++;
+                    }
+                    load.put(node, assigned + 1);
+                    owners[p] = node;
+                    break;
+                }
+            }
+        }
+        return owners;
+    }
+
+    public String ownerOf(String roomId) {
+        return enabled ? partitionOwners[partitionOf(roomId)] : self;
+    }
+
+    public boolean isLocal(String roomId) {
+        return !enabled || self.equals(ownerOf(roomId));
+    }
+
+    /**
+     * Base URL clients should connect to for the room, empty when it is this node or unknown.
+     */
+    public String urlOf(String roomId) {
+        return isLocal(roomId) ? "" : nodeUrls.getOrDefault(ownerOf(roomId), "");
+    }
+
+    /**
+     * Partition for a room's records, or null to keep the default key hashing when affinity is off.
+     */
+    public Integer partitionFor(String roomId) {
+        return enabled ? partitionOf(roomId) : null;
+    }
+
+    private int partitionOf(String roomId) {
+        return Math.floorMod(roomId.hashCode(), partitions);
+    }
+
+    /**
+     * Partitions consumed by this node, for the affinity listeners' manual assignment. All partitions when
+     * affinity is off, the listeners are not started then.
+     */
+    public String[] ownedPartitions() {
+        IntStream owned = IntStream.range(0, partitions);
+        if (enabled) {
+            owned = owned.filter(p -> self.equals(partitionOwners[p]));
+        }
+        return owned.mapToObj(String::valueOf).toArray(String[]::new);
+    }
+}
@@ -0,0 +1,30 @@
+package srtech.com.chatservice.feature.affinity;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class RoomAffinityController {
+
+    private final RoomAffinity roomAffinity;
+
+    /**
+     * Where clients should open their WebSocket for a room; an empty url means the current node.
+     */
+    @GetMapping("/api/v1/rooms/{roomId}/node")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Map<String, Object>> getRoomNode(@PathVariable String roomId) {
+        return ResponseEntity.ok(Map.of(
+                "roomId", roomId,
+                "node", roomAffinity.ownerOf(roomId),
+                "url", roomAffinity.urlOf(roomId),
+                "local", roomAffinity.isLocal(roomId)));
+    }
+}
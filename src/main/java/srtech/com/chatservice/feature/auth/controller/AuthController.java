@@ -1,11 +1,15 @@
 package srtech.com.chatservice.feature.auth.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import srtech.com.chatservice.feature.auth.repository.dto.AuthRequest;
 import srtech.com.chatservice.feature.auth.repository.dto.AuthResponse;
 import srtech.com.chatservice.feature.auth.repository.dto.Refresh;
@@ -13,6 +17,8 @@ import srtech.com.chatservice.feature.auth.service.AuthServiceImpl;
 import srtech.com.chatservice.feature.user.repository.dto.UserRequest;
 import srtech.com.chatservice.feature.user.service.UserService;
 
+import java.util.concurrent.CompletableFuture;
+
 
 @RestController
 @RequiredArgsConstructor
@@ -21,15 +27,16 @@ public class AuthController {
     private final AuthServiceImpl authService;
     private final UserService userService;
 
+    // Registration and login complete asynchronously, the request thread is released while hashing
     @PostMapping("/register")
-    public ResponseEntity<String> register(@RequestBody UserRequest userRequest) {
-        userService.register(userRequest);
-        return ResponseEntity.ok("User registered successfully");
+    public CompletableFuture<ResponseEntity<String>> register(@RequestBody UserRequest userRequest) {
+        return userService.register(userRequest)
+                .thenApply(registered -> ResponseEntity.ok("User registered successfully"));
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest authRequest) {
-        return ResponseEntity.ok(authService.login(authRequest));
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@RequestBody AuthRequest authRequest) {
+        return authService.login(authRequest).thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/refresh")
@@ -37,4 +44,15 @@ public class AuthController {
         return ResponseEntity.ok(authService.refresh(refreshToken));
     }
 
+    // Send the refresh token in the body to revoke it as well
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                       @RequestBody(required = false) Refresh refreshToken) {
+        if (!authorization.startsWith("Bearer ")) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Bearer token required");
+        }
+        authService.logout(authorization.substring(7), refreshToken != null ? refreshToken.refreshToken() : null);
+        return ResponseEntity.noContent().build();
+    }
+
 }
@@ -5,10 +5,14 @@ import srtech.com.chatservice.feature.auth.repository.dto.AuthRequest;
 import srtech.com.chatservice.feature.auth.repository.dto.AuthResponse;
 import srtech.com.chatservice.feature.auth.repository.dto.Refresh;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AuthService {
 
-    AuthResponse login(AuthRequest request);
+    CompletableFuture<AuthResponse> login(AuthRequest request);
 
     AuthResponse refresh(Refresh request);
 
+    void logout(String accessToken, String refreshToken);
+
 }
@@ -1,31 +1,62 @@
 package srtech.com.chatservice.feature.auth.service;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
 import org.springframework.stereotype.Service;
 import srtech.com.chatservice.feature.auth.repository.dto.AuthRequest;
 import srtech.com.chatservice.feature.auth.repository.dto.AuthResponse;
 import srtech.com.chatservice.feature.auth.repository.dto.Refresh;
+import srtech.com.chatservice.security.PasswordHashingService;
 import srtech.com.chatservice.security.TokenGenerator;
+import srtech.com.chatservice.security.TokenRevocationService;
+
+import java.util.concurrent.CompletableFuture;
 
 
 @Service
-@RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService{
 
     private final DaoAuthenticationProvider daoAuthenticationProvider;
     private final JwtAuthenticationProvider jwtAuthenticationProvider;
     private final TokenGenerator tokenGenerator;
+    private final PasswordHashingService passwordHashingService;
+    private final JwtDecoder jwtAccessTokenDecoder;
+    private final JwtDecoder jwtRefreshTokenDecoder;
+    private final TokenRevocationService tokenRevocationService;
+
+    public AuthServiceImpl(
+            DaoAuthenticationProvider daoAuthenticationProvider,
+            JwtAuthenticationProvider jwtAuthenticationProvider,
+            TokenGenerator tokenGenerator,
+            PasswordHashingService passwordHashingService,
+            JwtDecoder jwtAccessTokenDecoder,
+            @Qualifier("jwtRefreshTokenDecoder") JwtDecoder jwtRefreshTokenDecoder,
+            TokenRevocationService tokenRevocationService
+    ) {
+        this.daoAuthenticationProvider = daoAuthenticationProvider;
+        this.jwtAuthenticationProvider = jwtAuthenticationProvider;
+        this.tokenGenerator = tokenGenerator;
+        this.passwordHashingService = passwordHashingService;
+        this.jwtAccessTokenDecoder = jwtAccessTokenDecoder;
+        this.jwtRefreshTokenDecoder = jwtRefreshTokenDecoder;
+        this.tokenRevocationService = tokenRevocationService;
+    }
 
+    /**
+     * The credential check is almost entirely the BCrypt comparison, so it runs on the password hashing pool.
+     * Signing the tokens is RSA work of its own and runs after it on the follow-up pool.
+     */
     @Override
-    public AuthResponse login(AuthRequest request) {
-        Authentication authentication = daoAuthenticationProvider
-                .authenticate(new UsernamePasswordAuthenticationToken(request.email(), request.password()));
-        return tokenGenerator.generateTokens(authentication);
+    public CompletableFuture<AuthResponse> login(AuthRequest request) {
+        return passwordHashingService
+                .submit(() -> daoAuthenticationProvider
+                        .authenticate(new UsernamePasswordAuthenticationToken(request.email(), request.password())))
+                .thenApplyAsync(tokenGenerator::generateTokens, passwordHashingService.followUpExecutor());
     }
 
     @Override
@@ -34,4 +65,16 @@ public class AuthServiceImpl implements AuthService{
                 .authenticate(new BearerTokenAuthenticationToken(request.refreshToken()));
         return tokenGenerator.generateTokens(authentication);
     }
+
+    /**
+     * Revokes the access token on every node, and the refresh token when the client sends it; without it
+     * the refresh token keeps working until it expires. An invalid or already revoked token fails.
+     */
+    @Override
+    public void logout(String accessToken, String refreshToken) {
+        tokenRevocationService.revoke(jwtAccessTokenDecoder.decode(accessToken));
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            tokenRevocationService.revoke(jwtRefreshTokenDecoder.decode(refreshToken));
+        }
+    }
 }
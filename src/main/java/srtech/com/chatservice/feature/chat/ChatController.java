@@ -1,8 +1,12 @@
 package srtech.com.chatservice.feature.chat;
 
-
+import com.chatengine.avro.ChatMessageAvro;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -16,14 +20,18 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import srtech.com.chatservice.domain.ChatMessage;
 import srtech.com.chatservice.domain.ChatRoom;
-import srtech.com.chatservice.domain.UserPresence;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
 import srtech.com.chatservice.feature.redis.RedisService;
+import srtech.com.chatservice.feature.websocket.ReceiveTimestampInterceptor;
 import srtech.com.chatservice.security.CustomUserDetail;
 
+import java.io.IOException;
 import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 @Controller
 @RequiredArgsConstructor
@@ -32,15 +40,18 @@ public class ChatController {
 
     private final ChatService chatService;
     private final RedisService redisService;
+    private final ChatMetrics chatMetrics;
+    private final RoomDirectory roomDirectory;
 
     @MessageMapping("/chat.sendMessage/{roomId}")
-    public void sendMessage(@DestinationVariable String roomId, @Payload Map<String , String> message,
+    public void sendMessage(@DestinationVariable String roomId, @Payload ChatMessageAvro message,
                            SimpMessageHeaderAccessor headerAccessor, Principal principal) {
+        Timer.Sample sample = chatMetrics.start();
+        if (headerAccessor.getHeader(ReceiveTimestampInterceptor.RECEIVED_AT_HEADER) instanceof Long receivedAt) {
+            // time the frame spent queued on the inbound channel
+            chatMetrics.recordSinceCreated(ChatMetrics.STAGE_STOMP_RECEIVE, receivedAt);
+        }
         try {
-            String senderId = message.get("senderId");
-            String senderName = message.get("senderName");
-            String content = message.get("content");
-
             // Enhanced authentication check - try multiple sources
             Authentication authentication = getAuthenticationFromMessage(headerAccessor, principal);
 
@@ -54,18 +65,33 @@ public class ChatController {
                 CustomUserDetail userDetails = (CustomUserDetail) authentication.getPrincipal();
                 String authenticatedUserId = userDetails.getUser().getId().toString();
 
-                if (senderId != null && !senderId.equals(authenticatedUserId)) {
-                    log.warn("User {} attempted to send message as user {}", authenticatedUserId, senderId);
+                if (message.getSenderId() == null) {
+                    message.setSenderId(authenticatedUserId);
+                } else if (!message.getSenderId().equals(authenticatedUserId)) {
+                    log.warn("User {} attempted to send message as user {}", authenticatedUserId, message.getSenderId());
                     return;
                 }
             }
 
-            redisService.storeUserSession(senderId, headerAccessor.getSessionId());
-            chatService.sendMessage(roomId,senderId,senderName,content, ChatMessage.MessageType.CHAT);
-            log.info("Message sent from user {} to room {}: {}", senderName, roomId, content);
+            if (message.getSenderId() == null || message.getSenderName() == null || message.getContent() == null) {
+                log.warn("Incomplete chat message for room {} dropped", roomId);
+                return;
+            }
+
+            // The body only carries the sender fields, complete the record in place and publish it
+            message.setId(UUID.randomUUID().toString());
+            message.setRoomId(roomId);
+            message.setMessageType(com.chatengine.avro.MessageType.CHAT);
+            message.setTimestamp(System.currentTimeMillis());
+
+            redisService.storeUserSession(message.getSenderId(), headerAccessor.getSessionId());
+            chatService.publish(message);
+            log.info("Message sent from user {} to room {}: {}", message.getSenderName(), roomId, message.getContent());
 
         }catch (Exception e){
             log.error("Error sending message to room {}: {}", roomId, e.getMessage());
+        } finally {
+            chatMetrics.stop(sample, ChatMetrics.STAGE_STOMP_RECEIVE);
         }
     }
 
@@ -103,14 +129,8 @@ public class ChatController {
 
             // store session info to redis
             redisService.storeUserSession(userId, headerAccessor.getSessionId());
-            chatService.joinRoom(roomId, userId);
-
-            // update user presence
-            chatService.updateUserPresence(userId,username, roomId, UserPresence.PresenceStatus.ONLINE);
-
-            // send enhanced join message
-            String joinMessage = String.format("🎉 %s has joined the conversation! Welcome!", username);
-            chatService.sendMessage(roomId, userId, username, joinMessage, ChatMessage.MessageType.JOIN);
+            // membership, join notice and presence are recorded together and published by the outbox relay
+            chatService.joinRoom(roomId, userId, username);
 
             log.info("User {} successfully joined room {}", username, roomId);
 
@@ -146,6 +166,18 @@ public class ChatController {
         return ResponseEntity.ok(rooms);
     }
 
+    @GetMapping("/api/v1/rooms/directory")
+    @ResponseBody
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<RoomDirectory.DirectoryPage> getRoomDirectory(@RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(roomDirectory.getPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/api/v1/rooms")
     @ResponseBody
     @PreAuthorize("isAuthenticated()")
@@ -154,6 +186,8 @@ public class ChatController {
             String name = roomData.get("name");
             String description = roomData.get("description");
             ChatRoom newRoom = chatService.createRoom(name, description);
+            // Other nodes drop their directory cache when the room event arrives, this one right away
+            roomDirectory.invalidate();
             return ResponseEntity.ok(newRoom);
 
         }catch (Exception e){
@@ -186,6 +220,19 @@ public class ChatController {
         }
     }
 
+    /**
+     * Messages after the given room sequence, oldest first; what a reconnecting client missed.
+     */
+    @GetMapping(value = "/api/v1/rooms/{roomId}/messages", params = "since")
+    @ResponseBody
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<MessageDto>> getRoomMessagesSince(@PathVariable String roomId,
+                                                                 @RequestParam long since,
+                                                                 @RequestParam(defaultValue = "200") int limit,
+                                                                 Authentication authentication) {
+        return ResponseEntity.ok(chatService.getMessagesSince(roomId, since, Math.max(1, Math.min(limit, 1000))));
+    }
+
     @GetMapping("/api/v1/rooms/{roomId}/users")
     @ResponseBody
     @PreAuthorize("isAuthenticated()")
@@ -197,9 +244,25 @@ public class ChatController {
     @GetMapping("/api/v1/rooms/{roomId}/recent-messages")
     @ResponseBody
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Object>> getRecentMessages(@PathVariable String roomId, Authentication authentication) {
-        List<Object> messages = redisService.getRecentMessages(roomId);
-        return ResponseEntity.ok(messages);
+    public void getRecentMessages(@PathVariable String roomId, Authentication authentication,
+                                  HttpServletResponse response) throws IOException {
+        // The cache holds ready-made JSON objects; write them out as an array without decoding them
+        List<byte[]> fragments = redisService.getRecentMessageFragments(roomId);
+        int length = fragments.size() + (fragments.isEmpty() ? 2 : 1);
+        for (byte[] fragment : fragments) {
+            length += fragment.length;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write('[');
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(fragments.get(i));
+        }
+        out.write(']');
     }
 
     /**
@@ -1,11 +1,14 @@
 package srtech.com.chatservice.feature.chat;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import srtech.com.chatservice.domain.ChatMessage;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -17,5 +20,25 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, String
     @Query(value = "SELECT * FROM chat_message WHERE room_id = :roomId ORDER BY timestamp DESC LIMIT :limit", nativeQuery = true)
     List<ChatMessage> findByRoomIdOrderByTimestampDesc(@Param("roomId") String roomId, @Param("limit") int limit);
 
+    /**
+     * Insert the message unless a row with the same id exists; returns the number of rows inserted.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO chat_message (id, room_id, sender_id, sender_name, content, message_type, timestamp, seq) " +
+            "VALUES (:id, :roomId, :senderId, :senderName, :content, :messageType, :timestamp, :seq) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id, @Param("roomId") String roomId, @Param("senderId") String senderId,
+                       @Param("senderName") String senderName, @Param("content") String content,
+                       @Param("messageType") String messageType, @Param("timestamp") LocalDateTime timestamp,
+                       @Param("seq") long seq);
+
+    /**
+     * Highest sequence stored for the room, 0 if none; served from the (room_id, seq) index.
+     */
+    @Query("SELECT COALESCE(MAX(m.seq), 0) FROM ChatMessage m WHERE m.roomId = :roomId")
+    long findMaxSeq(@Param("roomId") String roomId);
+
+    List<ChatMessage> findByRoomIdAndSeqGreaterThanOrderBySeqAsc(String roomId, long seq, Pageable pageable);
+
     List<ChatMessage> findByRoomIdAndMessageTypeOrderByTimestampDesc(String roomId, ChatMessage.MessageType messageType);
 }
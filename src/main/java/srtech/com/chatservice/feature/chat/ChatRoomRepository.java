@@ -1,12 +1,36 @@
 package srtech.com.chatservice.feature.chat;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import srtech.com.chatservice.domain.ChatRoom;
+import srtech.com.chatservice.domain.dto.RoomSummary;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface ChatRoomRepository extends JpaRepository<ChatRoom, String> {
     Optional<ChatRoom> findByName(String name);
+
+    /**
+     * The first page of the directory in a single statement; members are counted in the database, never
+     * loaded. The order matches the created_at index read backwards, and a slice needs no count query.
+     */
+    @Query("SELECT new srtech.com.chatservice.domain.dto.RoomSummary(r.id, r.name, r.description, r.createdAt, SIZE(r.participants)) " +
+            "FROM ChatRoom r ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<RoomSummary> findSummaries(Pageable pageable);
+
+    /**
+     * The page after the room at {@code (createdAt, id)}. Seeks into the created_at index instead of
+     * skipping rows, so a deep page costs the same as the first one.
+     */
+    @Query("SELECT new srtech.com.chatservice.domain.dto.RoomSummary(r.id, r.name, r.description, r.createdAt, SIZE(r.participants)) " +
+            "FROM ChatRoom r WHERE r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    Slice<RoomSummary> findSummariesAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") String id,
+                                          Pageable pageable);
 }
@@ -1,8 +1,14 @@
 package srtech.com.chatservice.feature.chat;
 
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.PresenceStatus;
+import com.chatengine.avro.RoomEventAvro;
+import com.chatengine.avro.RoomEventType;
+import com.chatengine.avro.UserPresenceAvro;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import srtech.com.chatservice.domain.ChatMessage;
 import srtech.com.chatservice.domain.ChatRoom;
@@ -10,12 +16,16 @@ import srtech.com.chatservice.domain.UserPresence;
 import srtech.com.chatservice.domain.dto.MessageDto;
 import srtech.com.chatservice.domain.dto.UserPresenceDto;
 import srtech.com.chatservice.feature.kafka.KafkaProducerService;
+import srtech.com.chatservice.feature.outbox.OutboxService;
 import srtech.com.chatservice.feature.redis.RedisService;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -30,27 +40,26 @@ public class ChatService {
     private final ChatRoomRepository roomRepository;
     private final KafkaProducerService kafkaProducerService;
     private final RedisService redisService;
+    private final OutboxService outboxService;
 
     public MessageDto sendMessage(String roomId, String senderId, String senderName, String content, ChatMessage.MessageType messageType) {
 
         try {
 
             MessageDto messageDto = new MessageDto(
-                    UUID.randomUUID().toString(), roomId, senderId, senderName, content, messageType, Instant.now().toEpochMilli()
+                    UUID.randomUUID().toString(), roomId, senderId, senderName, content, messageType, Instant.now().toEpochMilli(), 0
             );
 
-            // Convert messageType to Avro MessageType
-            com.chatengine.avro.MessageType avroMessageType = com.chatengine.avro.MessageType.valueOf(messageType.name());
-
-            kafkaProducerService.sendChatMessage(
+            ChatMessageAvro record = new ChatMessageAvro(
                     messageDto.getId(),
                     messageDto.getRoomId(),
                     messageDto.getSenderId(),
                     messageDto.getSenderName(),
                     messageDto.getContent(),
-                    avroMessageType,
+                    com.chatengine.avro.MessageType.valueOf(messageType.name()),
                     messageDto.getTimestamp()
             );
+            publish(record);
             log.info("Message sent to Kafka: {}", messageDto);
 
             return messageDto;
@@ -62,6 +71,14 @@ public class ChatService {
 
     }
 
+    /**
+     * Publish a fully populated record as is; the hot path for chat messages, no intermediate copies.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public void publish(ChatMessageAvro record) {
+        kafkaProducerService.sendChatMessage(record);
+    }
+
     public void saveMessage(MessageDto messageDto) {
         try {
             // Skip saving JOIN and LEAVE messages to database - they are just notifications
@@ -72,21 +89,26 @@ public class ChatService {
                 return;
             }
 
-            ChatMessage chatMessage = new ChatMessage();
-
-            chatMessage.setId(messageDto.getId());
-            chatMessage.setRoomId(messageDto.getRoomId());
-            chatMessage.setSenderId(messageDto.getSenderId());
-            chatMessage.setSenderName(messageDto.getSenderName());
-            chatMessage.setContent(messageDto.getContent());
-            chatMessage.setMessageType(messageDto.getMessageType());
-            chatMessage.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(messageDto.getTimestamp()), ZoneOffset.UTC));
-
-            messageRepository.save(chatMessage);
-            log.info("Message saved to database: {}", messageDto.getId());
+            // Redelivered records must not fail or duplicate, so insert only if the id is new
+            int inserted = messageRepository.insertIfAbsent(
+                    messageDto.getId(),
+                    messageDto.getRoomId(),
+                    messageDto.getSenderId(),
+                    messageDto.getSenderName(),
+                    messageDto.getContent(),
+                    messageDto.getMessageType().name(),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(messageDto.getTimestamp()), ZoneOffset.UTC),
+                    messageDto.getSeq());
+            if (inserted == 0) {
+                log.info("Message already in database, skipped: {}", messageDto.getId());
+            } else {
+                log.info("Message saved to database: {}", messageDto.getId());
+            }
 
         }catch (Exception e){
             log.error("Error saving message: {}", e.getMessage());
+            // Propagate so the consumer retries the record rather than losing it
+            throw e;
         }
     }
 
@@ -99,6 +121,50 @@ public class ChatService {
         }
     }
 
+    /**
+     * Sequenced messages of a room after {@code since}, oldest first. Served from the Redis recent list when
+     * it still holds the next sequence, otherwise from the database.
+     */
+    public List<MessageDto> getMessagesSince(String roomId, long since, int limit) {
+        if (limit < 1) {
+            return List.of();
+        }
+        List<MessageDto> cached = new ArrayList<>();
+        boolean covered = false;
+        long newest = 0;
+        for (MessageDto message : redisService.getRecentMessages(roomId)) {
+            if (message.getSeq() > 0) {
+                newest = Math.max(newest, message.getSeq());
+                covered |= message.getSeq() == since + 1;
+                if (message.getSeq() > since) {
+                    cached.add(message);
+                }
+            }
+        }
+        if (covered || (newest > 0 && newest <= since)) {
+            cached.sort(Comparator.comparingLong(MessageDto::getSeq));
+            return cached.size() > limit ? cached.subList(0, limit) : cached;
+        }
+
+        try {
+            return messageRepository.findByRoomIdAndSeqGreaterThanOrderBySeqAsc(roomId, since, PageRequest.of(0, limit))
+                    .stream()
+                    .map(message -> new MessageDto(
+                            message.getId(),
+                            message.getRoomId(),
+                            message.getSenderId(),
+                            message.getSenderName(),
+                            message.getContent(),
+                            message.getMessageType(),
+                            message.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli(),
+                            message.getSeq()))
+                    .toList();
+        } catch (Exception e) {
+            log.error("Error fetching room messages since {}: {}", since, e.getMessage());
+            return List.of();
+        }
+    }
+
     public ChatRoom createRoom(String name, String description) {
         try {
             ChatRoom room = new ChatRoom();
@@ -108,7 +174,9 @@ public class ChatService {
             room.setCreatedAt(LocalDateTime.now());
             room.setParticipants(Set.of()); // Initialize with no participants
 
-            return roomRepository.save(room);
+            ChatRoom saved = roomRepository.save(room);
+            appendRoomEvent(saved.getId(), RoomEventType.CREATED, null, saved.getName());
+            return saved;
         }catch (Exception e){
             log.error("Error creating room: {}", e.getMessage());
             throw new RuntimeException("Failed to create room", e);
@@ -123,33 +191,53 @@ public class ChatService {
         return roomRepository.findAll();
     }
 
-    public void joinRoom(String roomId, String userId) {
-        try {
-            Optional<ChatRoom> roomOpt = roomRepository.findById(roomId);
-            if (roomOpt.isPresent()) {
-                ChatRoom room = roomOpt.get();
-                room.getParticipants().add(userId);
-                roomRepository.save(room);
+    /**
+     * Add the user to the room and queue the membership event, the JOIN notice and the ONLINE presence in the
+     * outbox, all in one transaction: either everything is recorded and later published, or nothing is.
+     *
+     * @throws NoSuchElementException if the room does not exist; nothing is recorded then
+     */
+    public void joinRoom(String roomId, String userId, String username) {
+        ChatRoom room = roomRepository.findById(roomId).orElseThrow(
+                () -> new NoSuchElementException("Room not found: " + roomId)
+        );
+        room.getParticipants().add(userId);
+        roomRepository.save(room);
+        appendRoomEvent(roomId, RoomEventType.JOINED, userId, username);
 
-                log.info("User {} joined room {}", userId, roomId);
-            }
-        } catch (Exception e) {
-            log.error("Error joining room: {}", e.getMessage());
-        }
+        long now = Instant.now().toEpochMilli();
+        ChatMessageAvro joinMessage = new ChatMessageAvro(
+                UUID.randomUUID().toString(),
+                roomId,
+                userId,
+                username,
+                String.format("🎉 %s has joined the conversation! Welcome!", username),
+                com.chatengine.avro.MessageType.JOIN,
+                now
+        );
+        outboxService.append("chat-messages", roomId, roomId, joinMessage);
+
+        UserPresenceAvro presence = UserPresenceAvro.newBuilder()
+                .setUserId(userId)
+                .setUsername(username)
+                .setRoomId(roomId)
+                .setStatus(PresenceStatus.ONLINE)
+                .setTimestamp(now)
+                .build();
+        outboxService.append("user-presence", userId, roomId, presence);
+
+        log.info("User {} joined room {}", userId, roomId);
     }
 
     public void leaveRoom(String roomId, String userId) {
-        try {
-            Optional<ChatRoom> roomOpt = roomRepository.findById(roomId);
-            if (roomOpt.isPresent()) {
-                ChatRoom room = roomOpt.get();
-                room.getParticipants().remove(userId);
-                roomRepository.save(room);
+        Optional<ChatRoom> roomOpt = roomRepository.findById(roomId);
+        if (roomOpt.isPresent()) {
+            ChatRoom room = roomOpt.get();
+            room.getParticipants().remove(userId);
+            roomRepository.save(room);
+            appendRoomEvent(roomId, RoomEventType.LEFT, userId, null);
 
-                log.info("User {} left room {}", userId, roomId);
-            }
-        } catch (Exception e) {
-            log.error("Error leaving room: {}", e.getMessage());
+            log.info("User {} left room {}", userId, roomId);
         }
     }
 
@@ -180,4 +268,16 @@ public class ChatService {
         }
     }
 
-}
\ No newline at end of file
+    private void appendRoomEvent(String roomId, RoomEventType type, String userId, String name) {
+        RoomEventAvro event = RoomEventAvro.newBuilder()
+                .setId(UUID.randomUUID().toString())
+                .setRoomId(roomId)
+                .setType(type)
+                .setUserId(userId)
+                .setName(name)
+                .setTimestamp(Instant.now().toEpochMilli())
+                .build();
+        outboxService.append("room-events", roomId, roomId, event);
+    }
+
+}
@@ -0,0 +1,120 @@
+package srtech.com.chatservice.feature.chat;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import srtech.com.chatservice.domain.dto.RoomSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paginated room directory served from a node-local cache.
+ * <p>
+ * Pages are keyset-paged: each page carries an opaque cursor naming its last room, and the next page starts
+ * right after it in {@code (createdAt, id)} order, so deep pages never scan the rooms before them.
+ * <p>
+ * Pages are cached for a short TTL. Room creation clears the cache on every node through the room-events
+ * topic (and immediately on the creating node), so new rooms show up at once; member counts may lag by up
+ * to the TTL, which keeps busy rooms' joins and leaves from constantly flushing the cache.
+ */
+@Service
+@Slf4j
+public class RoomDirectory {
+
+    /**
+     * @param nextCursor cursor of the following page, {@code null} on the last one
+     */
+    public record DirectoryPage(List<RoomSummary> rooms, int size, String nextCursor) {
+    }
+
+    record Cursor(LocalDateTime createdAt, String id) {
+    }
+
+    private record PageKey(String cursor, int size) {
+    }
+
+    private record CachedPage(DirectoryPage page, long expiresAt) {
+    }
+
+    private final ChatRoomRepository roomRepository;
+    private final long ttlMillis;
+    private final int maxPageSize;
+    private final int maxCachedPages;
+    private final Map<PageKey, CachedPage> pages = new ConcurrentHashMap<>();
+    // Bumped on invalidation so a query that started before it does not re-cache a stale page
+    private final AtomicLong generation = new AtomicLong();
+
+    public RoomDirectory(ChatRoomRepository roomRepository,
+                         @Value("${chat.rooms.directory.ttl-seconds:30}") long ttlSeconds,
+                         @Value("${chat.rooms.directory.max-page-size:100}") int maxPageSize,
+                         @Value("${chat.rooms.directory.max-cached-pages:1000}") int maxCachedPages) {
+        this.roomRepository = roomRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxPageSize = maxPageSize;
+        this.maxCachedPages = maxCachedPages;
+    }
+
+    /**
+     * The page after {@code cursor}, or the first page when it is {@code null} or blank.
+     *
+     * @throws IllegalArgumentException if the cursor was not issued by this directory
+     */
+    public DirectoryPage getPage(String cursor, int size) {
+        Cursor after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+        PageKey key = new PageKey(after == null ? null : cursor, Math.min(Math.max(size, 1), maxPageSize));
+        long now = System.currentTimeMillis();
+        CachedPage cached = pages.get(key);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.page();
+        }
+
+        long queriedGeneration = generation.get();
+        PageRequest firstRows = PageRequest.of(0, key.size());
+        Slice<RoomSummary> result = after == null
+                ? roomRepository.findSummaries(firstRows)
+                : roomRepository.findSummariesAfter(after.createdAt(), after.id(), firstRows);
+        List<RoomSummary> rooms = result.getContent();
+        String nextCursor = result.hasNext() ? encodeCursor(rooms.get(rooms.size() - 1)) : null;
+        DirectoryPage directoryPage = new DirectoryPage(rooms, key.size(), nextCursor);
+        if (pages.size() >= maxCachedPages) {
+            pages.clear();
+        }
+        if (generation.get() == queriedGeneration) {
+            pages.put(key, new CachedPage(directoryPage, now + ttlMillis));
+        }
+        return directoryPage;
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        pages.clear();
+        log.debug("Room directory cache cleared");
+    }
+
+    static String encodeCursor(RoomSummary last) {
+        String position = last.getCreatedAt() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed directory cursor");
+            }
+            return new Cursor(LocalDateTime.parse(position.substring(0, separator)), position.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed directory cursor", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package srtech.com.chatservice.feature.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Set;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/admin/dead-letters")
+@Slf4j
+public class DeadLetterController {
+
+    private static final Set<String> REPLAYABLE_TOPICS = Set.of("chat-messages", "user-presence");
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    @PostMapping("/{topic}/replay")
+    @PreAuthorize("hasAuthority('DELETE')")
+    public ResponseEntity<DeadLetterReplayService.ReplayResult> replay(@PathVariable String topic,
+                                                                       @RequestParam(defaultValue = "10000") int maxRecords) {
+        if (!REPLAYABLE_TOPICS.contains(topic)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(deadLetterReplayService.replay(topic, maxRecords));
+        } catch (Exception e) {
+            log.error("Error replaying dead letters for {}: {}", topic, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package srtech.com.chatservice.feature.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import srtech.com.chatservice.config.KafkaConfig;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays dead-lettered records back to the topic they failed on, once the cause has been fixed.
+ * <p>
+ * Records are copied as raw bytes, so they are replayed exactly as they were produced, without the
+ * dead-letter headers. Each polled batch is sent without waiting on individual acks and then committed as
+ * a whole, so a replay that fails part way resumes after the last complete batch. Records that fail again
+ * simply go back to the dead-letter topic.
+ */
+@Service
+@Slf4j
+public class DeadLetterReplayService {
+
+    private static final String REPLAY_GROUP_ID = "chat-service-dlt-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+
+    private final KafkaTemplate<String, byte[]> byteArrayKafkaTemplate;
+    private final String bootstrapServers;
+    private final int batchSize;
+
+    public DeadLetterReplayService(KafkaTemplate<String, byte[]> byteArrayKafkaTemplate,
+                                   @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                                   @Value("${chat.kafka.dead-letter.replay-batch-size:500}") int batchSize) {
+        this.byteArrayKafkaTemplate = byteArrayKafkaTemplate;
+        this.bootstrapServers = bootstrapServers;
+        this.batchSize = batchSize;
+    }
+
+    public record ReplayResult(String deadLetterTopic, int replayed, int batches) {
+    }
+
+    /**
+     * Replay up to {@code maxRecords} records from the dead-letter topic of {@code topic}, stopping at the
+     * end offsets observed when the replay started.
+     */
+    public synchronized ReplayResult replay(String topic, int maxRecords) throws Exception {
+        String deadLetterTopic = topic + KafkaConfig.DEAD_LETTER_SUFFIX;
+        try (Consumer<String, byte[]> consumer = createConsumer()) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(deadLetterTopic);
+            if (partitions == null || partitions.isEmpty()) {
+                return new ReplayResult(deadLetterTopic, 0, 0);
+            }
+            List<TopicPartition> assignment = partitions.stream()
+                    .map(info -> new TopicPartition(deadLetterTopic, info.partition()))
+                    .toList();
+            consumer.assign(assignment);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(assignment);
+
+            int replayed = 0;
+            int batches = 0;
+            while (replayed < maxRecords && !reachedEnd(consumer, endOffsets)) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                if (records.isEmpty()) {
+                    continue;
+                }
+                List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (record.offset() >= endOffsets.get(partition) || replayed >= maxRecords) {
+                        // Arrived after the replay started, or over the limit: leave it for the next run
+                        continue;
+                    }
+                    sends.add(byteArrayKafkaTemplate.send(toOriginal(record, topic)));
+                    offsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+                // All sends of the batch are in flight together; commit only once every one is acked
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+                consumer.commitSync(offsets);
+                batches++;
+                log.info("Replayed batch {} of {} records from {}", batches, sends.size(), deadLetterTopic);
+            }
+            return new ReplayResult(deadLetterTopic, replayed, batches);
+        }
+    }
+
+    private static boolean reachedEnd(Consumer<String, byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(end -> consumer.position(end.getKey()) >= end.getValue());
+    }
+
+    /**
+     * The record as it was first produced: same topic and partition, without the dead-letter headers. The
+     * partition is restored explicitly, since with room affinity it was chosen by room rather than by the
+     * key's hash, and a record on any other partition would be consumed by a node that does not own the room.
+     */
+    static ProducerRecord<String, byte[]> toOriginal(ConsumerRecord<String, byte[]> record, String topic) {
+        Header originalTopic = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        String target = originalTopic != null ? new String(originalTopic.value(), StandardCharsets.UTF_8) : topic;
+        Header originalPartition = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_PARTITION);
+        Integer partition = originalPartition != null && originalPartition.value().length == Integer.BYTES
+                ? ByteBuffer.wrap(originalPartition.value()).getInt()
+                : null;
+        Headers headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith("kafka_dlt-")) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(target, partition, record.key(), record.value(), headers);
+    }
+
+    private Consumer<String, byte[]> createConsumer() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, REPLAY_GROUP_ID);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        return new KafkaConsumer<>(props);
+    }
+}
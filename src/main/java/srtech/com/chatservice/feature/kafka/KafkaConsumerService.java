@@ -1,33 +1,49 @@
 package srtech.com.chatservice.feature.kafka;
 
 import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.RoomEventAvro;
+import com.chatengine.avro.RoomEventType;
 import com.chatengine.avro.UserPresenceAvro;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import srtech.com.chatservice.domain.ChatMessage;
 import srtech.com.chatservice.domain.UserPresence;
 import srtech.com.chatservice.domain.dto.MessageDto;
 import srtech.com.chatservice.domain.dto.UserPresenceDto;
 import srtech.com.chatservice.feature.chat.ChatService;
+import srtech.com.chatservice.feature.chat.RoomDirectory;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+import srtech.com.chatservice.feature.metrics.HotRoomTracker;
 import srtech.com.chatservice.feature.redis.RedisService;
+import srtech.com.chatservice.feature.websocket.RoomBroadcaster;
+import srtech.com.chatservice.feature.websocket.RoomSubscriptions;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaConsumerService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final RoomBroadcaster roomBroadcaster;
     private final ChatService chatService;
     private final RedisService redisService;
-
-    @KafkaListener(topics = "chat-messages", groupId = "chat-service-group")
+    private final ChatMetrics chatMetrics;
+    private final MessageDeduplicator messageDeduplicator;
+    private final HotRoomTracker hotRoomTracker;
+    private final RoomSubscriptions roomSubscriptions;
+    private final RoomDirectory roomDirectory;
+
+    // Group-managed consumption, replaced by the manually assigned listeners below in affinity mode
+    @KafkaListener(topics = "chat-messages", groupId = "chat-service-group",
+            autoStartup = "#{!@roomAffinity.enabled}")
     public void consumeChatMessage(
             @Payload ChatMessageAvro chatMessage,
             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
@@ -35,8 +51,19 @@ public class KafkaConsumerService {
             @Header(KafkaHeaders.OFFSET) long offset,
             Acknowledgment acknowledgment) {
 
+        chatMetrics.recordSinceCreated(ChatMetrics.STAGE_CONSUMER_RECEIVE, chatMessage.getTimestamp());
+
         try {
             log.info("Received chat message from topic: {}, partition: {}, offset: {}", topic, partition, offset);
+            // Records of a room arrive in partition order, so this numbers the room's messages in order
+            long seq = messageDeduplicator.admit(chatMessage.getRoomId(), chatMessage.getId(),
+                    chatMessage.getMessageType() == com.chatengine.avro.MessageType.CHAT);
+            if (seq < 0) {
+                log.info("Skipping already processed chat message: {}", chatMessage.getId());
+                chatMetrics.recordDuplicateSkipped();
+                acknowledgment.acknowledge();
+                return;
+            }
             log.info("Chat message: id={}, roomId={}, senderId={}, content={}, type={}, timestamp={}",
                     chatMessage.getId(),
                     chatMessage.getRoomId(),
@@ -53,19 +80,27 @@ public class KafkaConsumerService {
                     chatMessage.getSenderName(),
                     chatMessage.getContent(),
                     ChatMessage.MessageType.valueOf(chatMessage.getMessageType().name()),
-                    chatMessage.getTimestamp()
+                    chatMessage.getTimestamp(),
+                    seq
             );
 
             // Save to database asynchronously
+            Timer.Sample sample = chatMetrics.start();
             chatService.saveMessage(messageDto);
-
-            // Cache in Redis
-            redisService.cacheRecentMessage(messageDto);
+            chatMetrics.stop(sample, ChatMetrics.STAGE_DB_SAVE);
 
             // **CRITICAL**: Broadcast to WebSocket subscribers
-            String destination = "/topic/room/" + messageDto.getRoomId();
-            log.info("Broadcasting message to WebSocket destination: {}", destination);
-            messagingTemplate.convertAndSend(destination, messageDto);
+            sample = chatMetrics.start();
+            roomBroadcaster.broadcastMessage(messageDto, chatMessage);
+            chatMetrics.stop(sample, ChatMetrics.STAGE_BROADCAST);
+            chatMetrics.recordSinceCreated(ChatMetrics.STAGE_BROADCAST, messageDto.getTimestamp());
+            hotRoomTracker.record(messageDto.getRoomId(), roomSubscriptions.roomSubscriberCount(messageDto.getRoomId()));
+
+            // Cache in Redis and mark processed, one round trip. Only after the broadcast, so a retry after
+            // a failed broadcast is not skipped and does not cache the message twice
+            sample = chatMetrics.start();
+            messageDeduplicator.markProcessed(messageDto);
+            chatMetrics.stop(sample, ChatMetrics.STAGE_REDIS_CACHE);
 
             // Acknowledge successful processing
             acknowledgment.acknowledge();
@@ -73,11 +108,13 @@ public class KafkaConsumerService {
 
         } catch (Exception e) {
             log.error("Error processing chat message: {}", e.getMessage(), e);
-            // Don't acknowledge - this will trigger retry logic
+            // Let the error handler retry and eventually dead-letter the record
+            throw e;
         }
     }
 
-    @KafkaListener(topics = "user-presence", groupId = "chat-service-group")
+    @KafkaListener(topics = "user-presence", groupId = "chat-service-group",
+            autoStartup = "#{!@roomAffinity.enabled}")
     public void consumeUserPresence(
             @Payload UserPresenceAvro userPresence,
             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
@@ -107,9 +144,7 @@ public class KafkaConsumerService {
             redisService.updateUserPresence(userPresenceDto);
 
             // Broadcast user presence to WebSocket subscribers
-            String destination = "/topic/room/" + userPresenceDto.getRoomId() + "/presence";
-            log.info("Broadcasting presence update to WebSocket destination: {}", destination);
-            messagingTemplate.convertAndSend(destination, userPresenceDto);
+            roomBroadcaster.broadcastPresence(userPresenceDto, userPresence);
 
             // Acknowledge successful processing
             acknowledgment.acknowledge();
@@ -117,7 +152,54 @@ public class KafkaConsumerService {
 
         } catch (Exception e) {
             log.error("Error processing user presence: {}", e.getMessage(), e);
-            // Don't acknowledge - this will trigger retry logic
+            // Let the error handler retry and eventually dead-letter the record
+            throw e;
+        }
+    }
+
+    /**
+     * Affinity mode: consume only the partitions of the rooms this node owns.
+     */
+    @KafkaListener(id = "chat-messages-affinity", groupId = "chat-service-group",
+            topicPartitions = @TopicPartition(topic = "chat-messages",
+                    partitions = "#{@roomAffinity.ownedPartitions()}"),
+            autoStartup = "#{@roomAffinity.enabled}")
+    public void consumeOwnedChatMessage(
+            @Payload ChatMessageAvro chatMessage,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            Acknowledgment acknowledgment) {
+        consumeChatMessage(chatMessage, topic, partition, offset, acknowledgment);
+    }
+
+    @KafkaListener(id = "user-presence-affinity", groupId = "chat-service-group",
+            topicPartitions = @TopicPartition(topic = "user-presence",
+                    partitions = "#{@roomAffinity.ownedPartitions()}"),
+            autoStartup = "#{@roomAffinity.enabled}")
+    public void consumeOwnedUserPresence(
+            @Payload UserPresenceAvro userPresence,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            Acknowledgment acknowledgment) {
+        consumeUserPresence(userPresence, topic, partition, offset, acknowledgment);
+    }
+
+    /**
+     * Every node reads all room events, to keep its room directory cache current. The partitions (all of
+     * the room-events topic, counted from its topic bean) are assigned manually from just before the end,
+     * and offsets are never committed: events from before the boot are irrelevant to a fresh cache, and no
+     * group is left behind.
+     */
+    @KafkaListener(id = "room-events-directory", groupId = "chat-service-rooms",
+            topicPartitions = @TopicPartition(topic = "room-events",
+                    partitions = "0-#{@roomEventTopic.numPartitions() - 1}",
+                    partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "-1")))
+    public void consumeRoomEvent(@Payload RoomEventAvro roomEvent) {
+        log.debug("Room event: roomId={}, type={}", roomEvent.getRoomId(), roomEvent.getType());
+        if (roomEvent.getType() == RoomEventType.CREATED) {
+            roomDirectory.invalidate();
         }
     }
 }
@@ -1,7 +1,6 @@
 package srtech.com.chatservice.feature.kafka;
 
 import com.chatengine.avro.ChatMessageAvro;
-import com.chatengine.avro.MessageType;
 import com.chatengine.avro.PresenceStatus;
 import com.chatengine.avro.UserPresenceAvro;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +8,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import srtech.com.chatservice.feature.affinity.RoomAffinity;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -18,28 +19,23 @@ import java.util.concurrent.CompletableFuture;
 public class KafkaProducerService {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ChatMetrics chatMetrics;
+    private final RoomAffinity roomAffinity;
 
-    public void sendChatMessage(String id, String roomId, String senderId, String senderName,
-                               String content, MessageType messageType, long timestamp) {
-
-        ChatMessageAvro chatMessage = ChatMessageAvro.newBuilder()
-                .setId(id)
-                .setRoomId(roomId)
-                .setSenderId(senderId)
-                .setSenderName(senderName)
-                .setContent(content)
-                .setMessageType(messageType)
-                .setTimestamp(timestamp)
-                .build();
+    public void sendChatMessage(ChatMessageAvro chatMessage) {
+        String id = chatMessage.getId();
+        long timestamp = chatMessage.getTimestamp();
 
         try {
             CompletableFuture<SendResult<String, Object>> future =
-                kafkaTemplate.send("chat-messages", roomId, chatMessage);
+                kafkaTemplate.send("chat-messages", roomAffinity.partitionFor(chatMessage.getRoomId()),
+                        chatMessage.getRoomId(), chatMessage);
 
             future.whenComplete((result, throwable) -> {
                 if (throwable != null) {
                     log.error("Failed to send chat message: {}", throwable.getMessage(), throwable);
                 } else {
+                    chatMetrics.recordSinceCreated(ChatMetrics.STAGE_KAFKA_ACK, timestamp);
                     log.info("Successfully sent chat message: {} to topic: {} partition: {} offset: {}",
                             id, result.getRecordMetadata().topic(),
                             result.getRecordMetadata().partition(),
@@ -64,7 +60,7 @@ public class KafkaProducerService {
 
         try {
             CompletableFuture<SendResult<String, Object>> future =
-                kafkaTemplate.send("user-presence", userId, userPresence);
+                kafkaTemplate.send("user-presence", roomAffinity.partitionFor(roomId), userId, userPresence);
 
             future.whenComplete((result, throwable) -> {
                 if (throwable != null) {
@@ -0,0 +1,116 @@
+package srtech.com.chatservice.feature.kafka;
+
+import com.chatengine.avro.CachedMessageAvro;
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.DirectMessageAvro;
+import com.chatengine.avro.GroupMessageAvro;
+import com.chatengine.avro.RoomEventAvro;
+import com.chatengine.avro.UserPresenceAvro;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.MissingSchemaException;
+import org.apache.avro.message.SchemaStore;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process stand-in for the schema registry, used when {@code chat.kafka.schema-mode} is {@code local}.
+ * <p>
+ * The schemas compiled into the generated Avro classes are pinned as reader schemas. Writer schemas are
+ * looked up by the CRC-64 fingerprint carried in every single-object encoded record: the generated schemas
+ * are always known, and older versions can be added as {@code .avsc} files in {@code chat.kafka.schema-dir}
+ * so records written by a previous release still resolve. Everything is loaded at startup; nothing is ever
+ * fetched over the network.
+ */
+@Component
+@Slf4j
+public class LocalSchemaRegistry implements SchemaStore {
+
+    private static final List<Schema> GENERATED = List.of(
+            ChatMessageAvro.getClassSchema(),
+            UserPresenceAvro.getClassSchema(),
+            RoomEventAvro.getClassSchema(),
+            DirectMessageAvro.getClassSchema(),
+            GroupMessageAvro.getClassSchema(),
+            CachedMessageAvro.getClassSchema());
+
+    /** Single-object header: two marker bytes followed by the 8-byte little-endian fingerprint. */
+    private static final int HEADER_LENGTH = 10;
+
+    private final Map<Long, Schema> writers = new HashMap<>();
+    private final Map<String, BinaryMessageDecoder<SpecificRecord>> decoders = new ConcurrentHashMap<>();
+
+    public LocalSchemaRegistry(@Value("${chat.kafka.schema-dir:}") String schemaDir) {
+        GENERATED.forEach(this::register);
+        if (!schemaDir.isBlank()) {
+            loadDirectory(Path.of(schemaDir));
+        }
+        for (Schema reader : GENERATED) {
+            decoders.put(reader.getFullName(), new BinaryMessageDecoder<>(SpecificData.get(), reader, this));
+        }
+        log.info("Local schema registry holds {} writer schemas", writers.size());
+    }
+
+    @Override
+    public Schema findByFingerprint(long fingerprint) {
+        return writers.get(fingerprint);
+    }
+
+    /**
+     * Decode a single-object encoded record into the generated class of the same name, resolving the
+     * writer schema from the embedded fingerprint.
+     */
+    public SpecificRecord decode(byte[] payload) throws IOException {
+        if (payload.length < HEADER_LENGTH) {
+            throw new IOException("Payload too short for single-object encoding: " + payload.length + " bytes");
+        }
+        long fingerprint = 0;
+        for (int i = HEADER_LENGTH - 1; i >= 2; i--) {
+            fingerprint = (fingerprint << 8) | (payload[i] & 0xFF);
+        }
+        Schema writer = writers.get(fingerprint);
+        if (writer == null) {
+            throw new MissingSchemaException("No local schema for fingerprint " + Long.toHexString(fingerprint));
+        }
+        BinaryMessageDecoder<SpecificRecord> decoder = decoders.get(writer.getFullName());
+        if (decoder == null) {
+            throw new MissingSchemaException("No generated class for " + writer.getFullName());
+        }
+        return decoder.decode(payload);
+    }
+
+    private void register(Schema schema) {
+        writers.put(SchemaNormalization.parsingFingerprint64(schema), schema);
+    }
+
+    private void loadDirectory(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".avsc"))
+                    .sorted()
+                    .forEach(file -> {
+                        try {
+                            // A parser per file, so several versions of the same record can be loaded
+                            register(new Schema.Parser().parse(file.toFile()));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Could not read schema " + file, e);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list schema directory " + directory, e);
+        }
+    }
+}
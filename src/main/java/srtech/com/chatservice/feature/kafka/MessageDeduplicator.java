@@ -0,0 +1,73 @@
+package srtech.com.chatservice.feature.kafka;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.feature.chat.ChatMessageRepository;
+import srtech.com.chatservice.feature.redis.RedisService;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers which chat messages were fully processed, so redelivered records are acknowledged without
+ * saving and broadcasting them again.
+ * <p>
+ * Recent ids are kept in a bounded in-memory window that answers most redeliveries (retries land on the
+ * same consumer). Ids are also written to Redis with a TTL, which covers redeliveries after a rebalance
+ * moves the partition to another node. The Redis check shares its round trip with sequence assignment, and
+ * the marker is written together with the recent-messages cache entry once the message has been saved and
+ * broadcast, so a record retried after any failure goes through every step again.
+ */
+@Component
+public class MessageDeduplicator {
+
+    private final RedisService redisService;
+    private final ChatMessageRepository messageRepository;
+    private final Duration ttl;
+    private final Set<String> recent;
+
+    public MessageDeduplicator(RedisService redisService,
+                               ChatMessageRepository messageRepository,
+                               @Value("${chat.kafka.dedup.window-size:10000}") int windowSize,
+                               @Value("${chat.kafka.dedup.ttl-hours:24}") long ttlHours) {
+        this.redisService = redisService;
+        this.messageRepository = messageRepository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.recent = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>(windowSize, 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > windowSize;
+            }
+        }));
+    }
+
+    /**
+     * Admit a consumed message, assigning its room sequence in the same Redis round trip.
+     *
+     * @return -1 for a message that was already processed, otherwise its sequence (0 when unsequenced)
+     * @throws RuntimeException if a sequenced message cannot be numbered, so the record is retried
+     */
+    public long admit(String roomId, String messageId, boolean sequenced) {
+        if (recent.contains(messageId)) {
+            return -1;
+        }
+        long seq = redisService.admitMessage(roomId, messageId, sequenced,
+                () -> messageRepository.findMaxSeq(roomId));
+        if (seq < 0) {
+            recent.add(messageId);
+        }
+        return seq;
+    }
+
+    /**
+     * Call once the message is saved and broadcast: caches it and writes the processed marker in one round trip.
+     */
+    public void markProcessed(MessageDto messageDto) {
+        redisService.completeMessage(messageDto, ttl);
+        recent.add(messageDto.getId());
+    }
+}
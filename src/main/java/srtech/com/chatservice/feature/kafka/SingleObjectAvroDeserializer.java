@@ -0,0 +1,28 @@
+package srtech.com.chatservice.feature.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/**
+ * Reads single-object encoded records, resolving writer schemas from the {@link LocalSchemaRegistry}.
+ */
+public class SingleObjectAvroDeserializer implements Deserializer<Object> {
+
+    private final LocalSchemaRegistry schemaRegistry;
+
+    public SingleObjectAvroDeserializer(LocalSchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return schemaRegistry.decode(data);
+        } catch (Exception e) {
+            throw new SerializationException("Could not decode Avro record from " + topic + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package srtech.com.chatservice.feature.kafka;
+
+import org.apache.avro.specific.SpecificRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import srtech.com.chatservice.feature.websocket.AvroMessageConverter;
+
+/**
+ * Writes specific records with Avro single-object encoding; the schema is identified by its fingerprint
+ * instead of a registry id, so sending never needs the registry.
+ */
+public class SingleObjectAvroSerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof SpecificRecord record) {
+            return AvroMessageConverter.encode(record);
+        }
+        throw new SerializationException("Cannot serialize " + data.getClass().getName() + " to Avro for topic " + topic);
+    }
+}
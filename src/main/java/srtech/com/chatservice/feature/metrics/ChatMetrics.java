@@ -0,0 +1,152 @@
+package srtech.com.chatservice.feature.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency metrics for every hop a chat message takes through the service.
+ * <p>
+ * Two timers are kept per stage: {@code chat.message.stage} measures how long the stage itself took,
+ * and {@code chat.message.age} measures how old the message was (relative to the timestamp carried in
+ * {@code ChatMessageAvro}) when it reached that stage. Both publish histograms so p99 can be computed
+ * per stage in Prometheus.
+ */
+@Component
+public class ChatMetrics {
+
+    public static final String STAGE_STOMP_RECEIVE = "stomp_receive";
+    public static final String STAGE_KAFKA_ACK = "kafka_ack";
+    public static final String STAGE_CONSUMER_RECEIVE = "consumer_receive";
+    public static final String STAGE_DB_SAVE = "db_save";
+    public static final String STAGE_REDIS_CACHE = "redis_cache";
+    public static final String STAGE_BROADCAST = "broadcast";
+
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(30);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> ageTimers = new ConcurrentHashMap<>();
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+    private final DistributionSummary outboundBatchFrames;
+
+    public ChatMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("chat.websocket.sessions", sessions, Set::size)
+                .description("Connected STOMP sessions on this node")
+                .register(meterRegistry);
+        outboundBatchFrames = DistributionSummary.builder("chat.websocket.outbound.batch_frames")
+                .description("STOMP frames written per WebSocket message for batching sessions")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stop(Timer.Sample sample, String stage) {
+        sample.stop(stageTimers.computeIfAbsent(stage, s -> timer("chat.message.stage", s,
+                "Time spent in a single message processing stage")));
+    }
+
+    /**
+     * Record the age of a message when it reaches the given stage.
+     */
+    public void recordSinceCreated(String stage, long messageTimestamp) {
+        long age = System.currentTimeMillis() - messageTimestamp;
+        if (age < 0) {
+            // Clock skew between nodes, nothing meaningful to record
+            return;
+        }
+        ageTimers.computeIfAbsent(stage, s -> timer("chat.message.age", s,
+                        "Time since the message was created when it reached a stage"))
+                .record(age, TimeUnit.MILLISECONDS);
+    }
+
+    public void sessionOpened(String sessionId) {
+        sessions.add(sessionId);
+    }
+
+    public void sessionClosed(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * Record that a slow-consumer policy kicked in for a session.
+     *
+     * @param action the action taken, e.g. the policy name
+     * @param frames number of frames discarded by the action
+     */
+    public void recordSlowConsumer(String action, int frames) {
+        Counter.builder("chat.websocket.slow_consumer.actions")
+                .description("Times a slow-consumer policy was applied to a session")
+                .tag("action", action)
+                .register(meterRegistry)
+                .increment();
+        if (frames > 0) {
+            Counter.builder("chat.websocket.slow_consumer.dropped_frames")
+                    .description("Outbound frames discarded because a session could not keep up")
+                    .tag("action", action)
+                    .register(meterRegistry)
+                    .increment(frames);
+        }
+    }
+
+    public void recordOutboundBatch(int frames) {
+        outboundBatchFrames.record(frames);
+    }
+
+    public void recordRateLimited(String scope) {
+        Counter.builder("chat.rate_limit.rejected")
+                .description("Inbound STOMP frames rejected by a rate limit")
+                .tag("scope", scope)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordAdmissionRejected(String stage) {
+        Counter.builder("chat.admission.rejected")
+                .description("Connections refused because the node was saturated")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordDuplicateSkipped() {
+        Counter.builder("chat.kafka.duplicates_skipped")
+                .description("Redelivered chat messages skipped because they were already processed")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void recordPasswordHashingRejected() {
+        Counter.builder("chat.password_hashing.rejected")
+                .description("Logins and registrations refused because the password hashing queue was full")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    private Timer timer(String name, String stage, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,67 @@
+package srtech.com.chatservice.feature.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch: fixed-size frequency estimates that never undercount. With width {@code w} and depth
+ * {@code d}, an estimate exceeds the true count by more than {@code 2N/w} with probability at most
+ * {@code 2^-d}, where N is the total added. Not thread-safe.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final long[][] counts;
+    private final int[] seeds;
+
+    public CountMinSketch(int width, int depth) {
+        this.width = width;
+        this.counts = new long[depth][width];
+        this.seeds = new int[depth];
+        for (int i = 0; i < depth; i++) {
+            seeds[i] = 0x9E3779B9 * (i + 1);
+        }
+    }
+
+    /**
+     * Add to the key's count and return its new estimate.
+     */
+    public long add(String key, long amount) {
+        int hash = murmurMix(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            int column = Math.floorMod(murmurMix(hash ^ seeds[row]), width);
+            counts[row][column] += amount;
+            estimate = Math.min(estimate, counts[row][column]);
+        }
+        return estimate;
+    }
+
+    public long estimate(String key) {
+        int hash = murmurMix(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counts.length; row++) {
+            estimate = Math.min(estimate, counts[row][Math.floorMod(murmurMix(hash ^ seeds[row]), width)]);
+        }
+        return estimate;
+    }
+
+    public void clear() {
+        for (long[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    private static int murmurMix(String key) {
+        // String caches its hash code, so this costs nothing after the first call per instance
+        return murmurMix(key.hashCode());
+    }
+
+    private static int murmurMix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
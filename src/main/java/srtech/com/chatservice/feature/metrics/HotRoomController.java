@@ -0,0 +1,22 @@
+package srtech.com.chatservice.feature.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class HotRoomController {
+
+    private final HotRoomTracker hotRoomTracker;
+
+    @GetMapping("/api/v1/admin/rooms/hot")
+    @PreAuthorize("hasAuthority('DELETE')")
+    public ResponseEntity<List<HotRoomTracker.HotRoom>> getHotRooms() {
+        return ResponseEntity.ok(hotRoomTracker.getHotRooms());
+    }
+}
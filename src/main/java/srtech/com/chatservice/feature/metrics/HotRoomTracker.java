@@ -0,0 +1,161 @@
+package srtech.com.chatservice.feature.metrics;
+
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the rooms driving load without keeping a counter per room.
+ * <p>
+ * Messages and deliveries (message times local subscribers) are counted in count-min sketches over
+ * tumbling windows, and the K rooms with the highest message estimate are kept as candidates. A scheduled
+ * rotation closes each window, so its top-K becomes the reported snapshot, exposed at the stats endpoint and as
+ * {@code chat.room.hot.*} gauges tagged by room, and goes empty once traffic stops.
+ * <p>
+ * Rooms are striped by id, each stripe with its own sketches, candidates and lock, so listener threads only
+ * contend when they record rooms in the same stripe. A room is counted in one stripe only, so the union of
+ * the stripes' top-K holds the overall top-K.
+ */
+@Component
+public class HotRoomTracker {
+
+    public record HotRoom(String roomId, double messagesPerSecond, double deliveriesPerSecond) {
+    }
+
+    private static final int STRIPES = 16;
+
+    private final int topK;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final MultiGauge messageRates;
+    private final MultiGauge deliveryRates;
+
+    private long windowStart = System.currentTimeMillis();
+    private volatile List<HotRoom> snapshot = List.of();
+
+    public HotRoomTracker(ChatMetrics chatMetrics,
+                          @Value("${chat.hot-rooms.top-k:20}") int topK,
+                          @Value("${chat.hot-rooms.sketch-width:4096}") int sketchWidth,
+                          @Value("${chat.hot-rooms.sketch-depth:4}") int sketchDepth) {
+        this.topK = topK;
+        // Each stripe sees a sixteenth of the rooms, so a sixteenth of the width keeps the same error bound
+        int stripeWidth = Math.max(64, sketchWidth / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeWidth, sketchDepth);
+        }
+        this.messageRates = MultiGauge.builder("chat.room.hot.messages_per_second")
+                .description("Message rate of the hottest rooms over the last window")
+                .register(chatMetrics.getMeterRegistry());
+        this.deliveryRates = MultiGauge.builder("chat.room.hot.deliveries_per_second")
+                .description("Fan-out rate (messages times local subscribers) of the hottest rooms")
+                .register(chatMetrics.getMeterRegistry());
+    }
+
+    /**
+     * Count one message for the room, delivered to {@code fanout} local subscribers.
+     */
+    public void record(String roomId, int fanout) {
+        int h = roomId.hashCode();
+        stripes[(h ^ (h >>> 16)) & (STRIPES - 1)].record(roomId, fanout);
+    }
+
+    /**
+     * Hottest rooms of the last complete window, hottest first.
+     */
+    public List<HotRoom> getHotRooms() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedRateString = "${chat.hot-rooms.window-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    public void rotate() {
+        rotate(System.currentTimeMillis());
+    }
+
+    synchronized void rotate(long now) {
+        long elapsed = now - windowStart;
+        if (elapsed <= 0) {
+            return;
+        }
+        double seconds = elapsed / 1000.0;
+        List<HotRoom> rooms = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(rooms, seconds);
+        }
+        rooms.sort(Comparator.comparingDouble(HotRoom::messagesPerSecond).reversed());
+        snapshot = List.copyOf(rooms.subList(0, Math.min(topK, rooms.size())));
+
+        messageRates.register(snapshot.stream()
+                .map(room -> MultiGauge.Row.of(Tags.of("room", room.roomId()), room.messagesPerSecond()))
+                .toList(), true);
+        deliveryRates.register(snapshot.stream()
+                .map(room -> MultiGauge.Row.of(Tags.of("room", room.roomId()), room.deliveriesPerSecond()))
+                .toList(), true);
+        windowStart = now;
+    }
+
+    private final class Stripe {
+
+        private final CountMinSketch messages;
+        private final CountMinSketch deliveries;
+        private final Map<String, Long> candidates = new HashMap<>();
+        // Valid once the candidates are full; a new room only has to beat it, so most records skip the scan
+        private String coldest;
+        private long coldestEstimate;
+
+        Stripe(int width, int depth) {
+            this.messages = new CountMinSketch(width, depth);
+            this.deliveries = new CountMinSketch(width, depth);
+        }
+
+        synchronized void record(String roomId, int fanout) {
+            long estimate = messages.add(roomId, 1);
+            deliveries.add(roomId, fanout);
+
+            if (candidates.containsKey(roomId)) {
+                candidates.put(roomId, estimate);
+                if (roomId.equals(coldest)) {
+                    findColdest();
+                }
+            } else if (candidates.size() < topK) {
+                candidates.put(roomId, estimate);
+                if (candidates.size() == topK) {
+                    findColdest();
+                }
+            } else if (estimate > coldestEstimate) {
+                candidates.remove(coldest);
+                candidates.put(roomId, estimate);
+                findColdest();
+            }
+        }
+
+        synchronized void drainTo(List<HotRoom> rooms, double seconds) {
+            for (String roomId : candidates.keySet()) {
+                rooms.add(new HotRoom(roomId, messages.estimate(roomId) / seconds,
+                        deliveries.estimate(roomId) / seconds));
+            }
+            messages.clear();
+            deliveries.clear();
+            candidates.clear();
+            coldest = null;
+        }
+
+        private void findColdest() {
+            coldest = null;
+            coldestEstimate = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+                if (entry.getValue() < coldestEstimate) {
+                    coldest = entry.getKey();
+                    coldestEstimate = entry.getValue();
+                }
+            }
+        }
+    }
+}
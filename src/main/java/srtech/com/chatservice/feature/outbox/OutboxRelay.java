@@ -0,0 +1,139 @@
+package srtech.com.chatservice.feature.outbox;
+
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.RoomEventAvro;
+import com.chatengine.avro.UserPresenceAvro;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import srtech.com.chatservice.domain.OutboxEvent;
+import srtech.com.chatservice.feature.affinity.RoomAffinity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Publishes outbox events to Kafka in id order, in batches.
+ * <p>
+ * Each run locks the oldest batch, sends every event without waiting in between (so the producer batches
+ * them), waits for all acks and deletes the batch with one statement in the same transaction. A failed
+ * send rolls the transaction back and the batch is retried on the next run; consumers are idempotent, so
+ * the rare duplicate after a crash between ack and commit is harmless.
+ * <p>
+ * The rows stay locked while the acks are awaited, so the wait is bounded by a short send timeout. Events
+ * that cannot be decoded will never publish, so they are parked in the same transaction rather than
+ * failing the batch and holding up every event behind them.
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final Map<String, BinaryMessageDecoder<SpecificRecord>> DECODERS =
+            Stream.of(ChatMessageAvro.getClassSchema(), UserPresenceAvro.getClassSchema(), RoomEventAvro.getClassSchema())
+                    .collect(Collectors.toMap(schema -> schema.getFullName(),
+                            schema -> new BinaryMessageDecoder<>(SpecificData.get(), schema)));
+
+    private static final String ROOM_EVENTS_TOPIC = "room-events";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final RoomAffinity roomAffinity;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       RoomAffinity roomAffinity,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${chat.outbox.batch-size:500}") int batchSize,
+                       @Value("${chat.outbox.send-timeout-ms:2000}") long sendTimeoutMs) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.roomAffinity = roomAffinity;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.outbox.poll-interval-ms:100}")
+    public void relay() {
+        try {
+            Integer published;
+            // Keep draining while batches come back full
+            do {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            log.error("Error relaying outbox events: {}", e.getMessage(), e);
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findOldestForUpdate(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(events.size());
+        List<Long> sent = new ArrayList<>(events.size());
+        List<Long> parked = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            SpecificRecord record;
+            try {
+                record = decode(event);
+            } catch (IllegalStateException e) {
+                log.error("Parking outbox event {} for topic {}: {}", event.getId(), event.getTopic(), e.getMessage());
+                parked.add(event.getId());
+                continue;
+            }
+            sends.add(kafkaTemplate.send(event.getTopic(), partitionFor(event), event.getMessageKey(), record));
+            sent.add(event.getId());
+        }
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to publish outbox batch", e);
+        }
+        if (!sent.isEmpty()) {
+            outboxEventRepository.deleteByIdIn(sent);
+        }
+        if (!parked.isEmpty()) {
+            outboxEventRepository.markFailed(parked, LocalDateTime.now());
+        }
+        log.debug("Relayed {} outbox events, parked {}", sent.size(), parked.size());
+        return events.size();
+    }
+
+    private Integer partitionFor(OutboxEvent event) {
+        return event.getRoomId() == null || ROOM_EVENTS_TOPIC.equals(event.getTopic())
+                ? null
+                : roomAffinity.partitionFor(event.getRoomId());
+    }
+
+    private static SpecificRecord decode(OutboxEvent event) {
+        BinaryMessageDecoder<SpecificRecord> decoder = DECODERS.get(event.getEventType());
+        if (decoder == null) {
+            throw new IllegalStateException("Unknown outbox event type " + event.getEventType());
+        }
+        try {
+            return decoder.decode(event.getPayload());
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not decode outbox event " + event.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package srtech.com.chatservice.feature.outbox;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.stereotype.Service;
+import srtech.com.chatservice.domain.OutboxEvent;
+import srtech.com.chatservice.feature.websocket.AvroMessageConverter;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * Queue a record for publishing; only valid inside the transaction making the matching state change.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void append(String topic, String key, String roomId, SpecificRecord record) {
+        OutboxEvent event = new OutboxEvent();
+        event.setTopic(topic);
+        event.setMessageKey(key);
+        event.setRoomId(roomId);
+        event.setEventType(record.getSchema().getFullName());
+        event.setPayload(AvroMessageConverter.encode(record));
+        event.setCreatedAt(LocalDateTime.now());
+        outboxEventRepository.save(event);
+    }
+}
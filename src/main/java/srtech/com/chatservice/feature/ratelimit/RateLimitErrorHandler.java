@@ -0,0 +1,25 @@
+package srtech.com.chatservice.feature.ratelimit;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.web.socket.messaging.StompSubProtocolErrorHandler;
+
+/**
+ * Adds a {@code retry-after-ms} header to the ERROR frame sent for refused CONNECTs. The receipt-id of the
+ * rejected frame is already copied over by the default handler.
+ */
+public class RateLimitErrorHandler extends StompSubProtocolErrorHandler {
+
+    public static final String RETRY_AFTER_HEADER = "retry-after-ms";
+
+    @Override
+    protected Message<byte[]> handleInternal(StompHeaderAccessor errorHeaderAccessor, byte[] errorPayload,
+                                             @Nullable Throwable cause,
+                                             @Nullable StompHeaderAccessor clientHeaderAccessor) {
+        if (cause instanceof RateLimitExceededException limit) {
+            errorHeaderAccessor.setNativeHeader(RETRY_AFTER_HEADER, String.valueOf(limit.getRetryAfterMillis()));
+        }
+        return super.handleInternal(errorHeaderAccessor, errorPayload, cause, clientHeaderAccessor);
+    }
+}
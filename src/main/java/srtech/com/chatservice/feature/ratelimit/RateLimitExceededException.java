@@ -0,0 +1,24 @@
+package srtech.com.chatservice.feature.ratelimit;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thrown from the inbound channel when a CONNECT is refused; turned into a STOMP ERROR frame, which closes the
+ * session. Rate-limited SEND frames are dropped without it, see {@link RateLimitInterceptor}.
+ */
+public class RateLimitExceededException extends MessageDeliveryException {
+
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(Message<?> message, String scope, long retryAfterNanos) {
+        super(message, "Rate limit exceeded for " + scope);
+        this.retryAfterMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos));
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
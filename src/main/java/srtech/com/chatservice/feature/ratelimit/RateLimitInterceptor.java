@@ -0,0 +1,183 @@
+package srtech.com.chatservice.feature.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user and per-room token buckets for the SEND frames that end up as Kafka writes.
+ * <p>
+ * A frame must get a token from the sender's bucket and then from the room's bucket; otherwise it is dropped
+ * and a {@link RateLimitNotice} is sent to the sending session's {@value #ERROR_QUEUE} user queue. A STOMP
+ * ERROR frame would close the connection, so one burst would cost the client its subscriptions and a
+ * reconnect. When the room rejects the frame, the sender's token is given back, so a busy room does not use
+ * up its users' quota. Must run after {@code WebSocketAuthenticationInterceptor}, which puts the
+ * authentication in the session.
+ */
+@Component
+@Slf4j
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    /**
+     * User destination rejected frames are reported on; clients subscribe to {@code /user/queue/errors}.
+     */
+    public static final String ERROR_QUEUE = "/queue/errors";
+
+    private static final String SEND_MESSAGE_PREFIX = "/app/chat.sendMessage/";
+    private static final String ADD_USER_PREFIX = "/app/chat.addUser/";
+    private static final String RECEIPT_ID_HEADER = "receipt-id";
+    private static final String AUTHENTICATION_ATTRIBUTE = "SPRING_SECURITY_AUTHENTICATION";
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ChatMetrics chatMetrics;
+    // Looked up on rejection: the template's broker is built from the channels this interceptor is part of
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final boolean enabled;
+    private final Limit userMessages;
+    private final Limit userJoins;
+    private final Limit roomMessages;
+    private final int maxTrackedKeys;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    public RateLimitInterceptor(
+            ChatMetrics chatMetrics,
+            ObjectProvider<SimpMessagingTemplate> messagingTemplate,
+            @Value("${chat.rate-limit.enabled:true}") boolean enabled,
+            @Value("${chat.rate-limit.user-messages-per-second:10}") double userMessagesPerSecond,
+            @Value("${chat.rate-limit.user-message-burst:20}") int userMessageBurst,
+            @Value("${chat.rate-limit.user-joins-per-second:1}") double userJoinsPerSecond,
+            @Value("${chat.rate-limit.user-join-burst:5}") int userJoinBurst,
+            @Value("${chat.rate-limit.room-messages-per-second:200}") double roomMessagesPerSecond,
+            @Value("${chat.rate-limit.room-message-burst:400}") int roomMessageBurst,
+            @Value("${chat.rate-limit.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.chatMetrics = chatMetrics;
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = enabled;
+        this.userMessages = new Limit("user:msg:", userMessagesPerSecond, userMessageBurst);
+        this.userJoins = new Limit("user:join:", userJoinsPerSecond, userJoinBurst);
+        this.roomMessages = new Limit("room:", roomMessagesPerSecond, roomMessageBurst);
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled) {
+            return message;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (!StompCommand.SEND.equals(accessor.getCommand()) || destination == null) {
+            return message;
+        }
+
+        String roomId;
+        Limit userLimit;
+        if (destination.startsWith(SEND_MESSAGE_PREFIX)) {
+            roomId = destination.substring(SEND_MESSAGE_PREFIX.length());
+            userLimit = userMessages;
+        } else if (destination.startsWith(ADD_USER_PREFIX)) {
+            roomId = destination.substring(ADD_USER_PREFIX.length());
+            userLimit = userJoins;
+        } else {
+            return message;
+        }
+
+        long now = System.nanoTime();
+        evictIdleBuckets(now);
+        String sender = senderKey(accessor);
+        TokenBucket userBucket = bucket(userLimit, sender, now);
+        long retryAfter = userBucket.tryAcquire(now);
+        if (retryAfter > 0) {
+            return reject(accessor, "user", sender, retryAfter);
+        }
+        // Joins also write a JOIN message into the room, so they count against the room too
+        retryAfter = bucket(roomMessages, roomId, now).tryAcquire(now);
+        if (retryAfter > 0) {
+            userBucket.refund();
+            return reject(accessor, "room", roomId, retryAfter);
+        }
+        return message;
+    }
+
+    private TokenBucket bucket(Limit limit, String key, long now) {
+        return buckets.computeIfAbsent(limit.prefix() + key,
+                k -> new TokenBucket(limit.permitsPerSecond(), limit.burst(), now));
+    }
+
+    /**
+     * Drops the frame and tells only the sending session, which stays connected. The receipt of the
+     * rejected frame, if it asked for one, is echoed so the client can tell which frame was dropped.
+     */
+    private Message<?> reject(StompHeaderAccessor accessor, String scope, String key, long retryAfterNanos) {
+        chatMetrics.recordRateLimited(scope);
+        log.debug("Rate limited {} {} for frame to {}", scope, key, accessor.getDestination());
+        long retryAfterMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos));
+        String sessionId = accessor.getSessionId();
+        SimpMessagingTemplate template = messagingTemplate.getIfAvailable();
+        if (sessionId == null || template == null) {
+            return null;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setNativeHeader(RateLimitErrorHandler.RETRY_AFTER_HEADER, String.valueOf(retryAfterMillis));
+        if (accessor.getReceipt() != null) {
+            headers.setNativeHeader(RECEIPT_ID_HEADER, accessor.getReceipt());
+        }
+        headers.setLeaveMutable(true);
+        // A session id as the user name addresses just that session, authenticated or not
+        template.convertAndSendToUser(sessionId, ERROR_QUEUE,
+                new RateLimitNotice(scope, accessor.getDestination(), retryAfterMillis), headers.getMessageHeaders());
+        return null;
+    }
+
+    private static String senderKey(StompHeaderAccessor accessor) {
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null && attributes.get(AUTHENTICATION_ATTRIBUTE) instanceof Authentication authentication) {
+            return authentication.getName();
+        }
+        // Unauthenticated frames are dropped later anyway, but must not bypass the limit meanwhile
+        return "session:" + accessor.getSessionId();
+    }
+
+    /**
+     * Full buckets carry no state, drop them once the map grows past its bound. The sweep walks the whole
+     * map, so it runs at most once per interval and on one thread, even when few buckets are full.
+     */
+    private void evictIdleBuckets(long now) {
+        if (buckets.size() <= maxTrackedKeys) {
+            return;
+        }
+        long last = lastEviction.get();
+        if (now - last < EVICTION_INTERVAL_NANOS || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private record Limit(String prefix, double permitsPerSecond, int burst) {
+    }
+
+    /**
+     * Body of the message sent to {@value #ERROR_QUEUE} for a dropped frame.
+     */
+    public record RateLimitNotice(String scope, String destination, long retryAfterMillis) {
+    }
+}
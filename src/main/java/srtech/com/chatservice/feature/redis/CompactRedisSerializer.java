@@ -0,0 +1,105 @@
+package srtech.com.chatservice.feature.redis;
+
+import com.chatengine.avro.CachedMessageAvro;
+import com.chatengine.avro.PresenceStatus;
+import com.chatengine.avro.UserPresenceAvro;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import srtech.com.chatservice.domain.ChatMessage;
+import srtech.com.chatservice.domain.UserPresence;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.domain.dto.UserPresenceDto;
+import srtech.com.chatservice.feature.kafka.LocalSchemaRegistry;
+import srtech.com.chatservice.feature.websocket.AvroMessageConverter;
+
+/**
+ * Redis value serializer that stores presence as Avro single-object encoded records instead of JSON with a
+ * class name in every value. Everything else (session ids, user ids, markers) is still written as JSON.
+ * Recent messages do not go through this serializer: they are cached as plain JSON fragments that are
+ * sent to clients unchanged (see {@link RedisService#getRecentMessageFragments}).
+ * <p>
+ * Reads tell the formats apart by the single-object marker bytes, which can never start a JSON document,
+ * so values written as JSON before the switch stay readable until they expire. Messages cached as
+ * {@link CachedMessageAvro} before the fragment format are still decoded, for the same reason.
+ */
+@Slf4j
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MARKER_0 = (byte) 0xC3;
+    private static final byte MARKER_1 = (byte) 0x01;
+
+    private final LocalSchemaRegistry schemaRegistry;
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+
+    public CompactRedisSerializer(LocalSchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        try {
+            if (value instanceof UserPresenceDto presence) {
+                return AvroMessageConverter.encode(toRecord(presence));
+            }
+        } catch (RuntimeException e) {
+            // e.g. a null in a required field; JSON can represent it and stays readable
+            log.debug("Falling back to JSON for {}: {}", value.getClass().getSimpleName(), e.getMessage());
+        }
+        return json.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length < 2 || bytes[0] != MARKER_0 || bytes[1] != MARKER_1) {
+            return json.deserialize(bytes);
+        }
+        try {
+            SpecificRecord record = schemaRegistry.decode(bytes);
+            if (record instanceof CachedMessageAvro message) {
+                return toDto(message);
+            }
+            if (record instanceof UserPresenceAvro presence) {
+                return toDto(presence);
+            }
+            return record;
+        } catch (Exception e) {
+            throw new SerializationException("Could not decode cached Avro value: " + e.getMessage(), e);
+        }
+    }
+
+    private static UserPresenceAvro toRecord(UserPresenceDto presence) {
+        return new UserPresenceAvro(
+                presence.getUserId(),
+                presence.getUsername(),
+                presence.getRoomId(),
+                PresenceStatus.valueOf(presence.getStatus().name()),
+                presence.getTimestamp());
+    }
+
+    private static MessageDto toDto(CachedMessageAvro message) {
+        return new MessageDto(
+                message.getId(),
+                message.getRoomId(),
+                message.getSenderId(),
+                message.getSenderName(),
+                message.getContent(),
+                ChatMessage.MessageType.valueOf(message.getMessageType().name()),
+                message.getTimestamp(),
+                message.getSeq());
+    }
+
+    private static UserPresenceDto toDto(UserPresenceAvro presence) {
+        return new UserPresenceDto(
+                presence.getUserId(),
+                presence.getUsername(),
+                presence.getRoomId(),
+                UserPresence.PresenceStatus.valueOf(presence.getStatus().name()),
+                presence.getTimestamp());
+    }
+}
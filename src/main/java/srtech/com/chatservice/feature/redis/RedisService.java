@@ -1,16 +1,32 @@
 package srtech.com.chatservice.feature.redis;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import srtech.com.chatservice.domain.UserPresence;
 import srtech.com.chatservice.domain.dto.MessageDto;
 import srtech.com.chatservice.domain.dto.UserPresenceDto;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.LongSupplier;
 
 @Service
 @RequiredArgsConstructor
@@ -18,24 +34,82 @@ import java.util.Set;
 public class RedisService {
 
     private final RedisTemplate<String , Object> redisTemplate;
+    private final ObjectMapper objectMapper;
 
     private static final String USER_PRESENCE_PREFIX = "presence:";
     private static final String ROOM_USERS_PREFIX = "room:users:";
     private static final String RECENT_MESSAGES_PREFIX = "room:messages:";
     private static final String USER_SESSIONS_PREFIX = "user:session:";
+    private static final String PROCESSED_MESSAGES_PREFIX = "msg:processed:";
+    private static final String ROOM_SEQUENCE_PREFIX = "room:seq:";
+    private static final Duration SEQUENCE_ASSIGNMENT_TTL = Duration.ofDays(1);
+    private static final int RECENT_MESSAGES_LIMIT = 50;
+    private static final Duration RECENT_MESSAGES_TTL = Duration.ofDays(7);
+    private static final byte[] LEGACY_TYPED_JSON = "{\"@class\"".getBytes(StandardCharsets.UTF_8);
 
+    private static final Duration USER_PRESENCE_TTL = Duration.ofHours(24);
+    private static final Duration USER_SESSION_TTL = Duration.ofHours(24);
+    // Unchanged sessions are rewritten only this often, to keep the key from expiring
+    private static final Duration USER_SESSION_REFRESH = Duration.ofHours(1);
+    private static final int TRACKED_SESSIONS_LIMIT = 100_000;
+    private static final byte[] PROCESSED_MARKER = "1".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Admits a consumed message in one round trip: returns -1 if it was already processed, otherwise the
+     * sequence already assigned to it or the room's next one (0 when it is not sequenced). A missing room
+     * counter is seeded from ARGV[3] with SET NX; without a seed (-1) the script returns -2 so the caller can
+     * look up the highest stored sequence and retry. All keys share the room's hash tag so the script stays
+     * on one cluster slot.
+     */
+    private static final RedisScript<Long> ADMIT_MESSAGE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[3]) == 1 then return -1 end " +
+            "if tonumber(ARGV[2]) == 0 then return 0 end " +
+            "local existing = redis.call('GET', KEYS[2]) " +
+            "if existing then return tonumber(existing) end " +
+            "if tonumber(ARGV[3]) >= 0 then redis.call('SET', KEYS[1], ARGV[3], 'NX') " +
+            "elseif redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local seq = redis.call('INCR', KEYS[1]) " +
+            "redis.call('SET', KEYS[2], seq, 'EX', tonumber(ARGV[1])) " +
+            "return seq",
+            Long.class);
+    private static final long NO_SEED = -1;
+    private static final long COUNTER_MISSING = -2;
+
+    /**
+     * Last session id written per user, so repeated sends from the same session skip the write.
+     */
+    private final Map<String, SessionWrite> sessionWrites = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SessionWrite> eldest) {
+                    return size() > TRACKED_SESSIONS_LIMIT;
+                }
+            });
+
+    private record SessionWrite(String sessionId, long writtenAt) {
+    }
+
+    /**
+     * Store the presence update and the room membership change in one pipelined round trip.
+     */
     public void updateUserPresence(UserPresenceDto presenceDto){
         try {
-            String key = USER_PRESENCE_PREFIX + presenceDto.getUserId();
-            redisTemplate.opsForValue().set(key, presenceDto, Duration.ofHours(24));
-
-            String roomUsersKey = ROOM_USERS_PREFIX + presenceDto.getRoomId();
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForValue().set(USER_PRESENCE_PREFIX + presenceDto.getUserId(), presenceDto, USER_PRESENCE_TTL);
 
-            if(presenceDto.getStatus() == UserPresence.PresenceStatus.ONLINE){
-                redisTemplate.opsForSet().add(roomUsersKey, presenceDto.getUserId());
-            } else if(presenceDto.getStatus() == UserPresence.PresenceStatus.OFFLINE) {
-                redisTemplate.opsForSet().remove(roomUsersKey, presenceDto.getUserId());
-            }
+                    String roomUsersKey = ROOM_USERS_PREFIX + presenceDto.getRoomId();
+                    if (presenceDto.getStatus() == UserPresence.PresenceStatus.ONLINE) {
+                        ops.opsForSet().add(roomUsersKey, presenceDto.getUserId());
+                    } else if (presenceDto.getStatus() == UserPresence.PresenceStatus.OFFLINE) {
+                        ops.opsForSet().remove(roomUsersKey, presenceDto.getUserId());
+                    }
+                    return null;
+                }
+            });
 
             log.debug("Updated user presence in Redis: {}", presenceDto.getUserId());
 
@@ -65,33 +139,104 @@ public class RedisService {
         }
     }
 
-    public void cacheRecentMessage(MessageDto messageDto) {
+    /**
+     * Finish a consumed message: cache it as the JSON fragment the recent-messages endpoint sends and mark it
+     * processed, in one pipelined round trip.
+     */
+    public void completeMessage(MessageDto messageDto, Duration processedTtl) {
         try {
-            String key = RECENT_MESSAGES_PREFIX + messageDto.getRoomId();
-            redisTemplate.opsForList().leftPush(key, messageDto);
-            redisTemplate.opsForList().trim(key, 0, 49); // Keep last 50 messages
-            redisTemplate.expire(key, Duration.ofDays(7));
+            byte[] fragment = objectMapper.writeValueAsBytes(messageDto);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] key = bytes(RECENT_MESSAGES_PREFIX + messageDto.getRoomId());
+                connection.listCommands().lPush(key, fragment);
+                connection.listCommands().lTrim(key, 0, RECENT_MESSAGES_LIMIT - 1);
+                connection.keyCommands().expire(key, RECENT_MESSAGES_TTL.toSeconds());
+                connection.stringCommands().set(bytes(processedKey(messageDto.getRoomId(), messageDto.getId())),
+                        PROCESSED_MARKER, Expiration.from(processedTtl), RedisStringCommands.SetOption.upsert());
+                return null;
+            });
 
-            log.debug("Cached recent message for room: {}", messageDto.getRoomId());
+            log.debug("Cached recent message: {}", messageDto.getId());
         }catch (Exception e){
             log.error("Error caching recent message in Redis: {}", e.getMessage(), e);
         }
     }
 
-    public List<Object> getRecentMessages(String roomId) {
+    /**
+     * Recent messages of the room as ready-to-send JSON objects, newest first.
+     */
+    public List<byte[]> getRecentMessageFragments(String roomId) {
         try {
-            String key = RECENT_MESSAGES_PREFIX + roomId;
-            return redisTemplate.opsForList().range(key, 0, -1);
+            byte[] key = bytes(RECENT_MESSAGES_PREFIX + roomId);
+            List<byte[]> entries = redisTemplate.execute(
+                    (RedisCallback<List<byte[]>>) connection -> connection.listCommands().lRange(key, 0, -1));
+            if (entries == null) {
+                return List.of();
+            }
+            List<byte[]> fragments = new ArrayList<>(entries.size());
+            for (byte[] entry : entries) {
+                if (!isLegacyEntry(entry)) {
+                    fragments.add(entry);
+                    continue;
+                }
+                try {
+                    fragments.add(objectMapper.writeValueAsBytes(redisTemplate.getValueSerializer().deserialize(entry)));
+                } catch (Exception e) {
+                    log.error("Skipping unreadable recent message in room {}: {}", roomId, e.getMessage());
+                }
+            }
+            return fragments;
         } catch (Exception e) {
             log.error("Error getting recent messages from Redis: {}", e.getMessage());
             return List.of();
         }
     }
 
+    public List<MessageDto> getRecentMessages(String roomId) {
+        List<byte[]> fragments = getRecentMessageFragments(roomId);
+        List<MessageDto> messages = new ArrayList<>(fragments.size());
+        for (byte[] fragment : fragments) {
+            try {
+                messages.add(objectMapper.readValue(fragment, MessageDto.class));
+            } catch (IOException e) {
+                log.error("Skipping unreadable recent message in room {}: {}", roomId, e.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Entries cached before fragments were introduced: Avro records or JSON carrying a class name.
+     */
+    private static boolean isLegacyEntry(byte[] entry) {
+        if (entry.length > 0 && entry[0] == (byte) 0xC3) {
+            return true;
+        }
+        if (entry.length < LEGACY_TYPED_JSON.length) {
+            return false;
+        }
+        for (int i = 0; i < LEGACY_TYPED_JSON.length; i++) {
+            if (entry[i] != LEGACY_TYPED_JSON[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the user's session; skipped when it is the session already written within the refresh interval.
+     */
     public void storeUserSession(String userId, String sessionId) {
+        long now = System.currentTimeMillis();
+        SessionWrite previous = sessionWrites.get(userId);
+        if (previous != null && previous.sessionId().equals(sessionId)
+                && now - previous.writtenAt() < USER_SESSION_REFRESH.toMillis()) {
+            return;
+        }
         try {
             String key = USER_SESSIONS_PREFIX + userId;
-            redisTemplate.opsForValue().set(key, sessionId, Duration.ofHours(24));
+            redisTemplate.opsForValue().set(key, sessionId, USER_SESSION_TTL);
+            sessionWrites.put(userId, new SessionWrite(sessionId, now));
         } catch (Exception e) {
             log.error("Error storing user session in Redis: {}", e.getMessage());
         }
@@ -107,13 +252,54 @@ public class RedisService {
         }
     }
 
+    /**
+     * Check a consumed message against the processed markers and, for sequenced messages, assign its room
+     * sequence, idempotent per message id so a redelivered record keeps its number. A room counter lost with
+     * Redis data is first seeded from {@code highestStoredSeq}, so numbering continues after the stored rows.
+     *
+     * @return -1 if the message was already processed, otherwise its sequence; 0 if it is not sequenced, or
+     * if Redis is unavailable for an unsequenced message (the insert-if-absent save still prevents duplicate
+     * rows). A sequenced message cannot be numbered without Redis, so that error is rethrown for the consumer
+     * to retry the record.
+     */
+    public long admitMessage(String roomId, String messageId, boolean sequenced, LongSupplier highestStoredSeq) {
+        String counterKey = ROOM_SEQUENCE_PREFIX + "{" + roomId + "}";
+        List<String> keys = List.of(counterKey, counterKey + ":" + messageId, processedKey(roomId, messageId));
+        try {
+            Long seq = redisTemplate.execute(ADMIT_MESSAGE_SCRIPT, keys,
+                    SEQUENCE_ASSIGNMENT_TTL.toSeconds(), sequenced ? 1 : 0, NO_SEED);
+            if (seq != null && seq == COUNTER_MISSING) {
+                long seed = highestStoredSeq.getAsLong();
+                log.info("Seeding sequence counter of room {} from stored sequence {}", roomId, seed);
+                seq = redisTemplate.execute(ADMIT_MESSAGE_SCRIPT, keys,
+                        SEQUENCE_ASSIGNMENT_TTL.toSeconds(), 1, seed);
+            }
+            return seq == null ? 0 : seq;
+        } catch (RuntimeException e) {
+            if (sequenced) {
+                throw e;
+            }
+            log.error("Error admitting message in Redis: {}", e.getMessage());
+            return 0;
+        }
+    }
+
     public void removeUserSession(String userId) {
         try {
             String key = USER_SESSIONS_PREFIX + userId;
+            sessionWrites.remove(userId);
             redisTemplate.delete(key);
         } catch (Exception e) {
             log.error("Error removing user session from Redis: {}", e.getMessage());
         }
     }
 
+    private static String processedKey(String roomId, String messageId) {
+        return PROCESSED_MESSAGES_PREFIX + "{" + roomId + "}:" + messageId;
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
 }
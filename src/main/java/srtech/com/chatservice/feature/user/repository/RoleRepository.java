@@ -11,4 +11,6 @@ import java.util.UUID;
 @Repository
 public interface RoleRepository extends JpaRepository<Role, UUID> {
     Optional<Role> findByName (String name);
+
+    long countByAuthoritiesIsNotEmpty();
 }
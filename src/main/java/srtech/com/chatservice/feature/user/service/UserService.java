@@ -6,10 +6,12 @@ import org.springframework.security.core.Authentication;
 import srtech.com.chatservice.feature.user.repository.dto.UserRequest;
 import srtech.com.chatservice.feature.user.repository.dto.UserResponse;
 
+import java.util.concurrent.CompletableFuture;
+
 
 public interface UserService {
 
-    void register(UserRequest userRequest);
+    CompletableFuture<Void> register(UserRequest userRequest);
 
     UserResponse getMe (Authentication authentication);
 
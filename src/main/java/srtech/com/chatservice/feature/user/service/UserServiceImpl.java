@@ -3,9 +3,10 @@ package srtech.com.chatservice.feature.user.service;
 
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 import srtech.com.chatservice.domain.Role;
 import srtech.com.chatservice.domain.User;
 import srtech.com.chatservice.feature.user.mapper.UserMapper;
@@ -13,10 +14,12 @@ import srtech.com.chatservice.feature.user.repository.RoleRepository;
 import srtech.com.chatservice.feature.user.repository.UserRepository;
 import srtech.com.chatservice.feature.user.repository.dto.UserRequest;
 import srtech.com.chatservice.feature.user.repository.dto.UserResponse;
+import srtech.com.chatservice.security.PasswordHashingService;
 
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -25,10 +28,19 @@ public class UserServiceImpl implements UserService{
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final UserMapper userMapper;
+    private final PasswordHashingService passwordHashingService;
 
 
+    /**
+     * Hashes the password once, on the password hashing pool, and saves the user when the hash is ready. The
+     * save runs on the follow-up pool so it never takes hashing capacity.
+     */
     @Override
-    public void register(UserRequest userRequest) {
+    public CompletableFuture<Void> register(UserRequest userRequest) {
+
+        if (!userRequest.password().equals(userRequest.confirm_password())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Passwords do not match");
+        }
 
         User user = userMapper.toEntity(userRequest);
 
@@ -40,11 +52,13 @@ public class UserServiceImpl implements UserService{
         user.setEmail(userRequest.email());
         user.setRoles(List.of(role));
         user.setProfileImage("default.jpg");
-        user.setPassword(new BCryptPasswordEncoder().encode(userRequest.password()));
-        user.setConfirm_password(new BCryptPasswordEncoder().encode(userRequest.confirm_password()));
-
 
-        userRepository.save(user);
+        return passwordHashingService.encode(userRequest.password()).thenAcceptAsync(hash -> {
+            // The confirmation was checked above, so both columns hold the same hash
+            user.setPassword(hash);
+            user.setConfirm_password(hash);
+            userRepository.save(user);
+        }, passwordHashingService.followUpExecutor());
     }
 
     @Override
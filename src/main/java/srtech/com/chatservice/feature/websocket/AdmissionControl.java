@@ -0,0 +1,176 @@
+package srtech.com.chatservice.feature.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+import srtech.com.chatservice.feature.ratelimit.RateLimitExceededException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-node admission control: caps open WebSocket sessions and in-flight inbound work.
+ * <p>
+ * New handshakes ({@link AdmissionHandshakeInterceptor}) and STOMP CONNECT frames are refused while the
+ * node is saturated, and readiness is switched to {@link ReadinessState#REFUSING_TRAFFIC} so the load
+ * balancer stops routing here. Readiness comes back once both counters drop below the resume threshold,
+ * which keeps the probe from flapping right at the limit. Established sessions are never cut off.
+ * <p>
+ * In-flight work counts the handler tasks queued or running on the client inbound channel: every subscriber
+ * of the channel gets its own task per message.
+ */
+@Component
+@Slf4j
+public class AdmissionControl implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChatMetrics chatMetrics;
+    private final boolean enabled;
+    private final int maxSessions;
+    private final int maxInFlight;
+    private final double resumeRatio;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicBoolean saturated = new AtomicBoolean();
+
+    public AdmissionControl(
+            ApplicationEventPublisher eventPublisher,
+            ChatMetrics chatMetrics,
+            @Value("${chat.admission.enabled:true}") boolean enabled,
+            @Value("${chat.admission.max-sessions:10000}") int maxSessions,
+            @Value("${chat.admission.max-in-flight:5000}") int maxInFlight,
+            @Value("${chat.admission.resume-ratio:0.9}") double resumeRatio,
+            @Value("${chat.admission.retry-after-seconds:5}") int retryAfterSeconds) {
+        this.eventPublisher = eventPublisher;
+        this.chatMetrics = chatMetrics;
+        this.enabled = enabled;
+        this.maxSessions = maxSessions;
+        this.maxInFlight = maxInFlight;
+        this.resumeRatio = resumeRatio;
+        this.retryAfterSeconds = retryAfterSeconds;
+        Gauge.builder("chat.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Inbound STOMP handler tasks queued or running")
+                .register(chatMetrics.getMeterRegistry());
+    }
+
+    /**
+     * Whether a new session may be admitted right now.
+     */
+    public boolean admit(String stage) {
+        if (!enabled) {
+            return true;
+        }
+        updateReadiness();
+        if (sessions.get() >= maxSessions || inFlight.get() >= maxInFlight) {
+            chatMetrics.recordAdmissionRejected(stage);
+            return false;
+        }
+        return true;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (StompCommand.CONNECT.equals(accessor.getCommand()) && !admit("connect")) {
+            log.debug("Node saturated, refusing STOMP CONNECT for session {}", accessor.getSessionId());
+            throw new RateLimitExceededException(message, "node", TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+        }
+        inFlight.addAndGet(tasksPerMessage(channel));
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent,
+                                    @Nullable Exception ex) {
+        if (!sent || ex != null) {
+            inFlight.addAndGet(-tasksPerMessage(channel));
+        }
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+                                    @Nullable Exception ex) {
+        if (inFlight.decrementAndGet() < resumeThreshold(maxInFlight) && saturated.get()) {
+            updateReadiness();
+        }
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                sessions.incrementAndGet();
+                updateReadiness();
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.decrementAndGet();
+                updateReadiness();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private void updateReadiness() {
+        if (!enabled) {
+            return;
+        }
+        int currentSessions = sessions.get();
+        int currentInFlight = inFlight.get();
+        if (currentSessions >= maxSessions || currentInFlight >= maxInFlight) {
+            if (saturated.compareAndSet(false, true)) {
+                log.warn("Node saturated ({} sessions, {} in-flight tasks), refusing traffic",
+                        currentSessions, currentInFlight);
+                AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+            }
+        } else if (currentSessions < resumeThreshold(maxSessions) && currentInFlight < resumeThreshold(maxInFlight)
+                && saturated.compareAndSet(true, false)) {
+            log.info("Node load back to {} sessions and {} in-flight tasks, accepting traffic",
+                    currentSessions, currentInFlight);
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    private int resumeThreshold(int limit) {
+        return (int) (limit * resumeRatio);
+    }
+
+    private static int tasksPerMessage(MessageChannel channel) {
+        return channel instanceof ExecutorSubscribableChannel executorChannel
+                ? executorChannel.getSubscribers().size()
+                : 1;
+    }
+}
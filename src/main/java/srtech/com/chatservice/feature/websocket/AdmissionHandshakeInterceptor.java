@@ -0,0 +1,37 @@
+package srtech.com.chatservice.feature.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Refuses the WebSocket or SockJS handshake with 503 and {@code Retry-After} while the node is saturated,
+ * before any session state is allocated.
+ */
+@RequiredArgsConstructor
+public class AdmissionHandshakeInterceptor implements HandshakeInterceptor {
+
+    private final AdmissionControl admissionControl;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (admissionControl.admit("handshake")) {
+            return true;
+        }
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.getRetryAfterSeconds()));
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,80 @@
+package srtech.com.chatservice.feature.websocket;
+
+import org.apache.avro.Schema;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.avro.specific.SpecificData;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts STOMP bodies in {@link BinaryProtocol#AVRO_CONTENT_TYPE} to and from Avro specific records
+ * using single-object encoding. Only frames that declare the content type are handled, JSON clients are
+ * left to the JSON converters.
+ */
+public class AvroMessageConverter extends AbstractMessageConverter {
+
+    private static final Map<Schema, BinaryMessageEncoder<SpecificRecord>> ENCODERS = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, BinaryMessageDecoder<SpecificRecord>> decoders = new ConcurrentHashMap<>();
+
+    public AvroMessageConverter() {
+        super(BinaryProtocol.AVRO_CONTENT_TYPE);
+        setStrictContentTypeMatch(true);
+    }
+
+    /**
+     * Single-object encode a record, the wire format of every binary frame.
+     */
+    public static byte[] encode(SpecificRecord record) {
+        try {
+            ByteBuffer buffer = ENCODERS
+                    .computeIfAbsent(record.getSchema(), schema -> new BinaryMessageEncoder<>(SpecificData.get(), schema))
+                    .encode(record);
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SpecificRecord.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    @Nullable
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, @Nullable Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+        try {
+            return decoder(targetClass).decode(payload);
+        } catch (IOException | RuntimeException e) {
+            throw new MessageConversionException(message, "Could not decode Avro payload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Nullable
+    protected Object convertToInternal(Object payload, @Nullable MessageHeaders headers, @Nullable Object conversionHint) {
+        return payload instanceof SpecificRecord record ? encode(record) : null;
+    }
+
+    private BinaryMessageDecoder<SpecificRecord> decoder(Class<?> targetClass) {
+        return decoders.computeIfAbsent(targetClass,
+                type -> new BinaryMessageDecoder<>(SpecificData.get(), SpecificData.get().getSchema(type)));
+    }
+}
@@ -0,0 +1,38 @@
+package srtech.com.chatservice.feature.websocket;
+
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * STOMP handler that wraps each session in our {@link OutboundSessionDecorator} instead of Spring's
+ * {@code ConcurrentWebSocketSessionDecorator}.
+ * <p>
+ * The session returned by {@link #decorateSession} is the one every outbound broker frame is written to, so
+ * it has to be ours: nested inside Spring's decorator, frames would be serialized and buffered before they
+ * reached our queue, and the slow-consumer policies and batching would never see more than one frame.
+ */
+public class BackpressureSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    private final OutboundSessionRegistry outboundSessions;
+
+    public BackpressureSubProtocolWebSocketHandler(MessageChannel clientInboundChannel,
+                                                   SubscribableChannel clientOutboundChannel,
+                                                   OutboundSessionRegistry outboundSessions) {
+        super(clientInboundChannel, clientOutboundChannel);
+        this.outboundSessions = outboundSessions;
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        return outboundSessions.decorate(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        outboundSessions.remove(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
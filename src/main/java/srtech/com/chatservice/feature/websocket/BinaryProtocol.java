@@ -0,0 +1,36 @@
+package srtech.com.chatservice.feature.websocket;
+
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+/**
+ * Constants for the opt-in binary (Avro) STOMP protocol.
+ * <p>
+ * A client connected to the native WebSocket endpoint asks for it by sending {@code chat-encoding:avro}
+ * in its CONNECT frame. Its room subscriptions are then served from the {@code /avro} twin of each
+ * destination, where bodies are Avro single-object encoded records ({@code ChatMessageAvro},
+ * {@code UserPresenceAvro}) instead of JSON. It may also SEND Avro bodies using {@link #AVRO_CONTENT_TYPE}.
+ * SockJS sessions always stay on JSON because SockJS cannot carry binary frames.
+ */
+public final class BinaryProtocol {
+
+    /**
+     * Octet-stream so Spring writes the frames as binary WebSocket messages, the parameter names the codec.
+     */
+    public static final MimeType AVRO_CONTENT_TYPE = new MimeType("application", "octet-stream", Map.of("codec", "avro"));
+
+    public static final String ENCODING_HEADER = "chat-encoding";
+    public static final String ENCODING_AVRO = "avro";
+    public static final String DESTINATION_SUFFIX = "/avro";
+
+    static final String ENCODING_ATTRIBUTE = "chat.encoding";
+    static final String NATIVE_TRANSPORT_ATTRIBUTE = "chat.nativeTransport";
+
+    private BinaryProtocol() {
+    }
+
+    public static String binaryDestination(String destination) {
+        return destination + DESTINATION_SUFFIX;
+    }
+}
@@ -0,0 +1,81 @@
+package srtech.com.chatservice.feature.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Negotiates the binary protocol at CONNECT and points binary sessions' room subscriptions at the
+ * {@code /avro} destinations.
+ */
+@Component
+@Slf4j
+public class BinaryProtocolInterceptor implements ChannelInterceptor {
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether any session on this node currently uses the binary protocol.
+     */
+    public boolean hasBinarySessions() {
+        return !binarySessions.isEmpty();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        StompCommand command = accessor.getCommand();
+        if (command == null) {
+            return message;
+        }
+
+        switch (command) {
+            case CONNECT -> negotiate(accessor);
+            case SUBSCRIBE -> {
+                return rewriteSubscription(message, accessor);
+            }
+            case DISCONNECT -> binarySessions.remove(accessor.getSessionId());
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private void negotiate(StompHeaderAccessor accessor) {
+        if (!BinaryProtocol.ENCODING_AVRO.equals(accessor.getFirstNativeHeader(BinaryProtocol.ENCODING_HEADER))) {
+            return;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes == null || !attributes.containsKey(BinaryProtocol.NATIVE_TRANSPORT_ATTRIBUTE)) {
+            log.debug("Binary protocol requested over SockJS by session {}, staying on JSON", accessor.getSessionId());
+            return;
+        }
+        attributes.put(BinaryProtocol.ENCODING_ATTRIBUTE, BinaryProtocol.ENCODING_AVRO);
+        binarySessions.add(accessor.getSessionId());
+        log.debug("Session {} negotiated the binary protocol", accessor.getSessionId());
+    }
+
+    private Message<?> rewriteSubscription(Message<?> message, StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (destination == null || attributes == null
+                || !BinaryProtocol.ENCODING_AVRO.equals(attributes.get(BinaryProtocol.ENCODING_ATTRIBUTE))
+                || !destination.startsWith(ROOM_TOPIC_PREFIX)
+                || destination.endsWith(BinaryProtocol.DESTINATION_SUFFIX)) {
+            return message;
+        }
+        accessor.setDestination(BinaryProtocol.binaryDestination(destination));
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,72 @@
+package srtech.com.chatservice.feature.websocket;
+
+import com.chatengine.avro.ChatMessageAvro;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+
+/**
+ * Reads a JSON chat message body straight into the {@link ChatMessageAvro} that goes to Kafka, streaming
+ * over the bytes instead of building a map first. Only the client-supplied fields (senderId, senderName,
+ * content) are read; the rest is filled in by the controller. Frames without a content type are accepted,
+ * which is what stomp.js sends.
+ */
+public class ChatMessageJsonConverter extends AbstractMessageConverter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public ChatMessageJsonConverter() {
+        super(MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ChatMessageAvro.class == clazz;
+    }
+
+    @Override
+    protected boolean canConvertTo(Object payload, @Nullable MessageHeaders headers) {
+        // Outbound messages are written by the Jackson converter
+        return false;
+    }
+
+    @Override
+    @Nullable
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, @Nullable Object conversionHint) {
+        Object payload = message.getPayload();
+        try (JsonParser parser = payload instanceof byte[] bytes
+                ? JSON_FACTORY.createParser(bytes)
+                : JSON_FACTORY.createParser(payload.toString())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MessageConversionException(message, "Expected a JSON object");
+            }
+            ChatMessageAvro record = new ChatMessageAvro();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "senderId" -> record.setSenderId(parser.getValueAsString());
+                    case "senderName" -> record.setSenderName(parser.getValueAsString());
+                    case "content" -> record.setContent(parser.getValueAsString());
+                    default -> {
+                    }
+                }
+            }
+            return record;
+        } catch (IOException e) {
+            throw new MessageConversionException(message, "Could not read chat message: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package srtech.com.chatservice.feature.websocket;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handshake handler for the native WebSocket endpoint that negotiates permessage-deflate.
+ * <p>
+ * Tomcat implements permessage-deflate but does not advertise it as an installed extension, so the default
+ * handler filters it out of every handshake. This handler passes it through when compression is enabled and
+ * strips it when it is not, leaving parameter negotiation (window bits, context takeover) to the container.
+ */
+public class CompressionHandshakeHandler extends DefaultHandshakeHandler {
+
+    public static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean compressionEnabled;
+
+    public CompressionHandshakeHandler(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> result = new ArrayList<>(
+                super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions));
+        result.removeIf(extension -> PERMESSAGE_DEFLATE.equals(extension.getName()));
+
+        if (compressionEnabled) {
+            // Only the first offer counts, browsers send fallbacks with fewer parameters after it
+            requestedExtensions.stream()
+                    .filter(extension -> PERMESSAGE_DEFLATE.equals(extension.getName()))
+                    .findFirst()
+                    .ifPresent(result::add);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package srtech.com.chatservice.feature.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Marks sessions that sent {@code chat-batch:true} at CONNECT, so {@link OutboundSessionDecorator} may
+ * coalesce their outbound frames. Clients that don't send the header keep getting one frame per message.
+ */
+@Component
+@Slf4j
+public class FrameBatchingInterceptor implements ChannelInterceptor {
+
+    public static final String BATCH_HEADER = "chat-batch";
+
+    static final String BATCHING_ATTRIBUTE = "chat.batching";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        if (!StompCommand.CONNECT.equals(accessor.getCommand())
+                || !"true".equals(accessor.getFirstNativeHeader(BATCH_HEADER))) {
+            return message;
+        }
+        Map<String, Object> attributes = accessor.getSessionAttributes();
+        if (attributes != null) {
+            attributes.put(BATCHING_ATTRIBUTE, Boolean.TRUE);
+            log.debug("Session {} negotiated outbound frame batching", accessor.getSessionId());
+        }
+        return message;
+    }
+}
@@ -0,0 +1,410 @@
+package srtech.com.chatservice.feature.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-session outbound buffer that never blocks a thread on another thread's write.
+ * <p>
+ * Like Spring's {@code ConcurrentWebSocketSessionDecorator}, the thread handing in a frame writes the queue
+ * itself if no other thread is writing to the session, and otherwise only queues the frame and returns.
+ * A client that reads slowly therefore holds at most the one thread stuck in its write, and the frames for
+ * it pile up in its own queue. When the queue grows past its byte limit the configured
+ * {@link SlowConsumerPolicy} is applied; a write that stays blocked past the send time limit always
+ * disconnects, since dropping frames cannot help a client that stopped reading. The limit is checked by
+ * the next thread that sends to the session and by {@link OutboundSessionRegistry}'s
+ * watchdog, so a stuck session that receives nothing more is closed as well.
+ * <p>
+ * For sessions that negotiated batching (see {@link FrameBatchingInterceptor}), a text frame arriving at an
+ * idle session is held for the batch window instead of being written at once, and everything queued by
+ * then, or while a previous write was in flight, is written as one WebSocket message. The batch is written
+ * early once the queue reaches the batch size, and by a thread of the batch scheduler when the window
+ * ends. STOMP frames are NUL-terminated, so clients split them back apart; each batch costs one write and
+ * one SockJS envelope.
+ */
+@Slf4j
+public class OutboundSessionDecorator extends WebSocketSessionDecorator {
+
+    /**
+     * Close status sent to clients that cannot keep up; they should reconnect and refetch history.
+     */
+    public static final CloseStatus RESYNC_REQUIRED = new CloseStatus(4008, "Slow consumer: reconnect and resync");
+
+    private static final String PRESENCE_SEGMENT = "/presence";
+    private static final String USER_ID_FIELD = "\"userId\":\"";
+    private static final int MAX_HEADER_BYTES = 512;
+    private static final int SINGLE_OBJECT_HEADER_LENGTH = 10;
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final SlowConsumerPolicy policy;
+    private final int batchMaxBytes;
+    private final long batchWindowMillis;
+    private final ScheduledExecutorService batchScheduler;
+    private final ChatMetrics chatMetrics;
+
+    private final Deque<WebSocketMessage<?>> buffer = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+    private final AtomicBoolean batchPending = new AtomicBoolean();
+    private final Lock flushLock = new ReentrantLock();
+    private final Lock limitLock = new ReentrantLock();
+    // Held while taking frames off the queue, never during a write, so conflation can rebuild it in order
+    private final Lock queueLock = new ReentrantLock();
+
+    private volatile long sendStartTime;
+    private volatile boolean closed;
+
+    public OutboundSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit,
+                                    SlowConsumerPolicy policy, int batchMaxBytes, long batchWindowMillis,
+                                    ScheduledExecutorService batchScheduler, ChatMetrics chatMetrics) {
+        super(delegate);
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.policy = policy;
+        this.batchMaxBytes = batchMaxBytes;
+        this.batchWindowMillis = batchWindowMillis;
+        this.batchScheduler = batchScheduler;
+        this.chatMetrics = chatMetrics;
+    }
+
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (closed) {
+            return;
+        }
+        buffer.add(message);
+        bufferSize.addAndGet(message.getPayloadLength());
+
+        if (!holdForBatch(message)) {
+            flushOrCheckLimits();
+        }
+    }
+
+    private void flushOrCheckLimits() {
+        if (!tryFlush()) {
+            checkSessionLimits();
+            // Conflation puts frames back; if the writer finished meanwhile nobody else would send them
+            tryFlush();
+        }
+    }
+
+    /**
+     * Leave a text frame of a batching session queued until the window ends or the batch is full.
+     *
+     * @return false if the queue should be written now
+     */
+    private boolean holdForBatch(WebSocketMessage<?> message) {
+        if (batchWindowMillis <= 0 || !(message instanceof TextMessage) || !isBatching()
+                || bufferSize.get() >= batchMaxBytes) {
+            return false;
+        }
+        if (batchPending.compareAndSet(false, true)) {
+            try {
+                batchScheduler.schedule(this::flushBatch, batchWindowMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down, write at once
+                batchPending.set(false);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void flushBatch() {
+        batchPending.set(false);
+        if (!closed) {
+            flushOrCheckLimits();
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closed = true;
+        buffer.clear();
+        bufferSize.set(0);
+        super.close(status);
+    }
+
+    /**
+     * Write the queue on this thread unless another thread is already writing to the session.
+     *
+     * @return false if another thread holds the session
+     */
+    private boolean tryFlush() {
+        do {
+            if (!flushLock.tryLock()) {
+                return false;
+            }
+            try {
+                flush();
+            } finally {
+                flushLock.unlock();
+            }
+            // A frame may have been queued after the last poll but before the lock was released
+        } while (!closed && !buffer.isEmpty());
+        return true;
+    }
+
+    private boolean isBatching() {
+        return Boolean.TRUE.equals(getAttributes().get(FrameBatchingInterceptor.BATCHING_ATTRIBUTE));
+    }
+
+    /**
+     * Append the text frames queued behind {@code first} into a single message, up to the batch size.
+     */
+    private WebSocketMessage<?> coalesce(WebSocketMessage<?> first) {
+        if (!(first instanceof TextMessage firstText) || !isBatching()) {
+            return first;
+        }
+        StringBuilder batch = null;
+        int length = first.getPayloadLength();
+        int frames = 1;
+        while (length < batchMaxBytes) {
+            WebSocketMessage<?> next = buffer.poll();
+            if (next == null) {
+                break;
+            }
+            if (!(next instanceof TextMessage nextText) || length + next.getPayloadLength() > batchMaxBytes) {
+                // Binary frames and oversized batches go out on their own, keep the order
+                buffer.offerFirst(next);
+                break;
+            }
+            bufferSize.addAndGet(-next.getPayloadLength());
+            if (batch == null) {
+                batch = new StringBuilder(Math.min(batchMaxBytes, length * 4)).append(firstText.getPayload());
+            }
+            batch.append(nextText.getPayload());
+            length += next.getPayloadLength();
+            frames++;
+        }
+        chatMetrics.recordOutboundBatch(frames);
+        return batch == null ? first : new TextMessage(batch);
+    }
+
+    /**
+     * The next message to write: the head of the queue, coalesced with what follows it for batching sessions.
+     */
+    private WebSocketMessage<?> pollNext() {
+        queueLock.lock();
+        try {
+            WebSocketMessage<?> message = buffer.poll();
+            if (message == null) {
+                return null;
+            }
+            bufferSize.addAndGet(-message.getPayloadLength());
+            return coalesce(message);
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void flush() {
+        try {
+            WebSocketMessage<?> message;
+            while (!closed && (message = pollNext()) != null) {
+                sendStartTime = System.currentTimeMillis();
+                getDelegate().sendMessage(message);
+                sendStartTime = 0;
+            }
+        } catch (Exception e) {
+            log.debug("Failed to write to WebSocket session {}: {}", getId(), e.getMessage());
+            closeQuietly(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            sendStartTime = 0;
+        }
+    }
+
+    /**
+     * Disconnect if a write has been blocked for longer than the send time limit.
+     *
+     * @return true if the session was closed
+     */
+    boolean checkSendTimeLimit() {
+        long started = sendStartTime;
+        if (closed || started == 0 || System.currentTimeMillis() - started <= sendTimeLimit) {
+            return false;
+        }
+        log.warn("Send to session {} blocked for more than {} ms, disconnecting", getId(), sendTimeLimit);
+        disconnect("send_time_limit");
+        return true;
+    }
+
+    private void checkSessionLimits() {
+        if (closed || !limitLock.tryLock()) {
+            return;
+        }
+        try {
+            if (checkSendTimeLimit() || bufferSize.get() <= bufferSizeLimit) {
+                return;
+            }
+            switch (policy) {
+                case DROP_OLDEST -> chatMetrics.recordSlowConsumer("drop_oldest", dropOldest());
+                case CONFLATE_PRESENCE -> {
+                    chatMetrics.recordSlowConsumer("conflate_presence", conflatePresence());
+                    if (bufferSize.get() > bufferSizeLimit) {
+                        chatMetrics.recordSlowConsumer("drop_oldest", dropOldest());
+                    }
+                }
+                case DISCONNECT -> {
+                    log.warn("Outbound buffer for session {} exceeded {} bytes, disconnecting", getId(), bufferSizeLimit);
+                    disconnect("disconnect");
+                }
+            }
+        } finally {
+            limitLock.unlock();
+        }
+    }
+
+    private int dropOldest() {
+        int dropped = 0;
+        while (bufferSize.get() > bufferSizeLimit) {
+            WebSocketMessage<?> message = buffer.poll();
+            if (message == null) {
+                break;
+            }
+            bufferSize.addAndGet(-message.getPayloadLength());
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Only the newest presence frame per room and user matters to the client, older ones are discarded.
+     * <p>
+     * The queue is drained, filtered newest-first in one pass and put back in front of anything queued
+     * meanwhile. The writer cannot take frames off the queue until it has been rebuilt, so the order of the
+     * frames that are kept does not change.
+     */
+    private int conflatePresence() {
+        queueLock.lock();
+        try {
+            List<WebSocketMessage<?>> queued = new ArrayList<>(buffer.size());
+            WebSocketMessage<?> polled;
+            while ((polled = buffer.poll()) != null) {
+                queued.add(polled);
+            }
+            Set<String> seen = new HashSet<>();
+            int dropped = 0;
+            for (int i = queued.size() - 1; i >= 0; i--) {
+                WebSocketMessage<?> message = queued.get(i);
+                String key = presenceKey(message);
+                if (key != null && !seen.add(key)) {
+                    bufferSize.addAndGet(-message.getPayloadLength());
+                    dropped++;
+                } else {
+                    buffer.offerFirst(message);
+                }
+            }
+            return dropped;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    private void disconnect(String action) {
+        chatMetrics.recordSlowConsumer(action, buffer.size());
+        closeQuietly(RESYNC_REQUIRED);
+    }
+
+    private void closeQuietly(CloseStatus status) {
+        try {
+            close(status);
+        } catch (Exception e) {
+            log.debug("Failed to close WebSocket session {}: {}", getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Identify a presence frame by destination and user, so only updates about the same user are conflated.
+     */
+    private static String presenceKey(WebSocketMessage<?> message) {
+        String head;
+        byte[] body = null;
+        if (message instanceof TextMessage textMessage) {
+            head = textMessage.getPayload();
+        } else if (message instanceof BinaryMessage binaryMessage) {
+            // STOMP headers are text even when the body is binary
+            ByteBuffer payload = binaryMessage.getPayload().duplicate();
+            body = new byte[payload.remaining()];
+            payload.get(body);
+            head = new String(body, 0, Math.min(body.length, MAX_HEADER_BYTES), StandardCharsets.ISO_8859_1);
+        } else {
+            return null;
+        }
+
+        int headersEnd = head.indexOf("\n\n");
+        int start = head.indexOf("\ndestination:");
+        if (headersEnd < 0 || start < 0 || start > headersEnd) {
+            return null;
+        }
+        start += "\ndestination:".length();
+        String destination = head.substring(start, head.indexOf('\n', start));
+        if (!destination.endsWith(PRESENCE_SEGMENT)
+                && !destination.endsWith(PRESENCE_SEGMENT + BinaryProtocol.DESTINATION_SUFFIX)) {
+            return null;
+        }
+
+        String userId = body == null
+                ? jsonUserId(head, headersEnd + 2)
+                : avroUserId(body, headersEnd + 2);
+        return userId == null ? null : destination + '|' + userId;
+    }
+
+    private static String jsonUserId(String frame, int bodyStart) {
+        int start = frame.indexOf(USER_ID_FIELD, bodyStart);
+        if (start < 0) {
+            return null;
+        }
+        start += USER_ID_FIELD.length();
+        int end = frame.indexOf('"', start);
+        return end < 0 ? null : frame.substring(start, end);
+    }
+
+    /**
+     * userId is the first field of UserPresenceAvro: skip the single-object header and read the string.
+     */
+    private static String avroUserId(byte[] frame, int bodyStart) {
+        int position = bodyStart + SINGLE_OBJECT_HEADER_LENGTH;
+        long raw = 0;
+        int shift = 0;
+        while (position < frame.length && shift < 32) {
+            byte b = frame[position++];
+            raw |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                int length = (int) ((raw >>> 1) ^ -(raw & 1));
+                return length < 0 || position + length > frame.length
+                        ? null
+                        : new String(frame, position, length, StandardCharsets.UTF_8);
+            }
+            shift += 7;
+        }
+        return null;
+    }
+}
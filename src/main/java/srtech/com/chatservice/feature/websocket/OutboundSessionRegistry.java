@@ -0,0 +1,103 @@
+package srtech.com.chatservice.feature.websocket;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps every WebSocket session in an {@link OutboundSessionDecorator} so slow clients are handled by
+ * the configured {@link SlowConsumerPolicy} instead of growing heap or stalling the broker's fan-out.
+ * <p>
+ * The wrapping is done by {@link BackpressureSubProtocolWebSocketHandler} in place of Spring's own
+ * per-session decorator, so broker frames and frames written directly by {@link RoomBroadcaster} share one
+ * outbound queue per session. Held batches are written by a small scheduler pool when their window ends.
+ * A watchdog applies the send time limit to all open sessions, so a write that
+ * is stuck on a client that receives no further frames is still cut off.
+ */
+@Component
+@Slf4j
+public class OutboundSessionRegistry {
+
+    private final ChatMetrics chatMetrics;
+    private final SlowConsumerPolicy policy;
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final int batchMaxBytes;
+    private final long batchWindowMillis;
+    private final Map<String, OutboundSessionDecorator> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService watchdog;
+    private final ScheduledExecutorService batchScheduler;
+
+    public OutboundSessionRegistry(
+            ChatMetrics chatMetrics,
+            @Value("${chat.websocket.outbound.policy:DROP_OLDEST}") SlowConsumerPolicy policy,
+            @Value("${chat.websocket.outbound.send-time-limit-ms:10000}") int sendTimeLimit,
+            @Value("${chat.websocket.outbound.buffer-size-limit:262144}") int bufferSizeLimit,
+            @Value("${chat.websocket.outbound.batch-max-bytes:16384}") int batchMaxBytes,
+            @Value("${chat.websocket.outbound.batch-window-ms:10}") long batchWindowMillis,
+            @Value("${chat.websocket.outbound.batch-threads:0}") int batchThreads) {
+        this.chatMetrics = chatMetrics;
+        this.policy = policy;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.batchMaxBytes = batchMaxBytes;
+        this.batchWindowMillis = batchWindowMillis;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ws-send-watchdog-"));
+        long period = Math.max(100, Math.min(sendTimeLimit / 2, 1000));
+        this.watchdog.scheduleWithFixedDelay(this::checkSendTimeLimits, period, period, TimeUnit.MILLISECONDS);
+        // Separate from the watchdog: a batch write can block on a slow client, the watchdog must not
+        this.batchScheduler = Executors.newScheduledThreadPool(
+                batchThreads > 0 ? batchThreads : Runtime.getRuntime().availableProcessors(),
+                new CustomizableThreadFactory("ws-batch-"));
+        log.info("Outbound WebSocket backpressure: policy={}, bufferSizeLimit={}B, sendTimeLimit={}ms",
+                policy, bufferSizeLimit, sendTimeLimit);
+    }
+
+    /**
+     * Wrap a newly established session in its outbound buffer and track it until {@link #remove(String)}.
+     */
+    public OutboundSessionDecorator decorate(WebSocketSession session) {
+        OutboundSessionDecorator decorator = new OutboundSessionDecorator(
+                session, sendTimeLimit, bufferSizeLimit, policy, batchMaxBytes, batchWindowMillis, batchScheduler,
+                chatMetrics);
+        sessions.put(session.getId(), decorator);
+        return decorator;
+    }
+
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    /**
+     * The open session with this id, wrapped in its outbound buffer; null once it has closed.
+     */
+    public WebSocketSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    private void checkSendTimeLimits() {
+        for (OutboundSessionDecorator session : sessions.values()) {
+            try {
+                session.checkSendTimeLimit();
+            } catch (Exception e) {
+                log.debug("Send time check failed for session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+        batchScheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,31 @@
+package srtech.com.chatservice.feature.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stamps inbound SEND frames with the time they were received, before they are queued on the inbound
+ * channel. STOMP messages carry no timestamp header by default, so without this the queueing time of the
+ * "STOMP receive" stage could not be measured.
+ */
+@Component
+public class ReceiveTimestampInterceptor implements ChannelInterceptor {
+
+    public static final String RECEIVED_AT_HEADER = "chat.receivedAt";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(RECEIVED_AT_HEADER, System.currentTimeMillis());
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+}
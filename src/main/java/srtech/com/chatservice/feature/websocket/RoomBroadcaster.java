@@ -0,0 +1,187 @@
+package srtech.com.chatservice.feature.websocket;
+
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.UserPresenceAvro;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.avro.specific.SpecificRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.domain.dto.UserPresenceDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes room messages and presence updates to the local broker, once as JSON for regular clients
+ * and once as Avro for sessions that negotiated the binary protocol.
+ * <p>
+ * Destinations with at least {@code shard-threshold} local subscribers bypass the broker and the client
+ * outbound channel: the payload is serialized once, the subscriber list is split into shards, and each
+ * shard encodes the STOMP MESSAGE frame per subscriber and hands it straight to the session's outbound
+ * buffer, in parallel on a bounded pool. That buffer is the same {@link OutboundSessionDecorator} the STOMP
+ * handler writes broker frames to, so a session in both a sharded and a regular room gets all its frames
+ * through one queue, in the order they were handed in, under the same limits. The encoding and writing is the per-subscriber work, so that is
+ * what runs in parallel. The call returns when every shard is done, so consecutive messages of a room are
+ * not interleaved; when the pool is saturated the calling consumer thread runs shards itself, which slows
+ * consumption instead of queueing without bound.
+ */
+@Component
+@Slf4j
+public class RoomBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BinaryProtocolInterceptor binaryProtocolInterceptor;
+    private final RoomSubscriptions roomSubscriptions;
+    private final OutboundSessionRegistry sessions;
+    private final int shardThreshold;
+    private final int shardSize;
+    private final ExecutorService fanOutExecutor;
+    private final StompEncoder stompEncoder = new StompEncoder();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    public RoomBroadcaster(SimpMessagingTemplate messagingTemplate,
+                           BinaryProtocolInterceptor binaryProtocolInterceptor,
+                           RoomSubscriptions roomSubscriptions,
+                           OutboundSessionRegistry sessions,
+                           @Value("${chat.websocket.fanout.shard-threshold:2000}") int shardThreshold,
+                           @Value("${chat.websocket.fanout.shard-size:1000}") int shardSize,
+                           @Value("${chat.websocket.fanout.threads:0}") int threads) {
+        this.messagingTemplate = messagingTemplate;
+        this.binaryProtocolInterceptor = binaryProtocolInterceptor;
+        this.roomSubscriptions = roomSubscriptions;
+        this.sessions = sessions;
+        this.shardThreshold = shardThreshold;
+        this.shardSize = shardSize;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        // Bounded queue, and the broadcasting thread writes shards itself when the pool is saturated
+        this.fanOutExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(poolSize * 4), new CustomizableThreadFactory("ws-fanout-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public void broadcastMessage(MessageDto messageDto, ChatMessageAvro record) {
+        String destination = "/topic/room/" + messageDto.getRoomId();
+        log.info("Broadcasting message to WebSocket destination: {}", destination);
+        sendJson(destination, messageDto);
+        sendBinary(destination, record);
+    }
+
+    public void broadcastPresence(UserPresenceDto presenceDto, UserPresenceAvro record) {
+        String destination = "/topic/room/" + presenceDto.getRoomId() + "/presence";
+        log.info("Broadcasting presence update to WebSocket destination: {}", destination);
+        sendJson(destination, presenceDto);
+        sendBinary(destination, record);
+    }
+
+    private void sendJson(String destination, Object payload) {
+        if (roomSubscriptions.count(destination) < shardThreshold) {
+            messagingTemplate.convertAndSend(destination, payload);
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setLeaveMutable(true);
+        Message<?> message = messagingTemplate.getMessageConverter().toMessage(payload, accessor.getMessageHeaders());
+        if (message == null) {
+            messagingTemplate.convertAndSend(destination, payload);
+            return;
+        }
+        shardedFanOut(destination, message);
+    }
+
+    private void sendBinary(String destination, SpecificRecord record) {
+        if (!binaryProtocolInterceptor.hasBinarySessions()) {
+            return;
+        }
+        String binaryDestination = BinaryProtocol.binaryDestination(destination);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(BinaryProtocol.AVRO_CONTENT_TYPE);
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(AvroMessageConverter.encode(record), accessor.getMessageHeaders());
+        if (roomSubscriptions.count(binaryDestination) < shardThreshold) {
+            messagingTemplate.send(binaryDestination, message);
+        } else {
+            shardedFanOut(binaryDestination, message);
+        }
+    }
+
+    private void shardedFanOut(String destination, Message<?> message) {
+        List<RoomSubscriptions.Subscriber> subscribers = new ArrayList<>(roomSubscriptions.count(destination));
+        roomSubscriptions.subscribers(destination).forEach(subscribers::add);
+
+        List<CompletableFuture<Void>> shards = new ArrayList<>();
+        for (int from = shardSize; from < subscribers.size(); from += shardSize) {
+            List<RoomSubscriptions.Subscriber> shard = subscribers.subList(from, Math.min(from + shardSize, subscribers.size()));
+            shards.add(CompletableFuture.runAsync(() -> deliver(destination, message, shard), fanOutExecutor));
+        }
+        // The first shard is written on this thread instead of waiting idle
+        deliver(destination, message, subscribers.subList(0, Math.min(shardSize, subscribers.size())));
+        CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new)).join();
+        log.debug("Fanned out to {} subscribers of {} in {} shards", subscribers.size(), destination, shards.size() + 1);
+    }
+
+    /**
+     * What the STOMP handler does per subscriber for a broker message: build the MESSAGE frame with the
+     * subscription's headers, encode it and send it as a text frame, or as binary for octet-stream bodies on
+     * plain WebSocket sessions.
+     */
+    private void deliver(String destination, Message<?> message, List<RoomSubscriptions.Subscriber> shard) {
+        byte[] payload = message.getPayload() instanceof String text
+                ? text.getBytes(StandardCharsets.UTF_8)
+                : (byte[]) message.getPayload();
+        MimeType contentType = SimpMessageHeaderAccessor.getContentType(message.getHeaders());
+        boolean octetStream = payload.length > 0 && contentType != null
+                && MimeTypeUtils.APPLICATION_OCTET_STREAM.isCompatibleWith(contentType);
+        for (RoomSubscriptions.Subscriber subscriber : shard) {
+            WebSocketSession session = sessions.getSession(subscriber.sessionId());
+            if (session == null || !session.isOpen()) {
+                continue;
+            }
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setSubscriptionId(subscriber.subscriptionId());
+            accessor.setDestination(destination);
+            accessor.setMessageId(subscriber.sessionId() + "-" + messageIds.getAndIncrement());
+            if (contentType != null) {
+                accessor.setContentType(contentType);
+            }
+            byte[] frame = stompEncoder.encode(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+            boolean binary = octetStream && !(WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession);
+            WebSocketMessage<?> webSocketMessage = binary ? new BinaryMessage(frame) : new TextMessage(frame);
+            try {
+                session.sendMessage(webSocketMessage);
+            } catch (Exception e) {
+                log.debug("Failed to deliver to session {}: {}", subscriber.sessionId(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+package srtech.com.chatservice.feature.websocket;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local registry of who is subscribed to which room topic, kept from the inbound SUBSCRIBE, UNSUBSCRIBE and
+ * DISCONNECT frames (the STOMP handler also sends DISCONNECT when a connection drops).
+ * <p>
+ * Must run after {@link BinaryProtocolInterceptor} so binary sessions are recorded under their rewritten
+ * {@code /avro} destination.
+ */
+@Component
+public class RoomSubscriptions implements ChannelInterceptor {
+
+    public static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    /**
+     * A session's subscription to a destination.
+     */
+    public record Subscriber(String sessionId, String subscriptionId) {
+    }
+
+    private final Map<String, Map<Subscriber, Boolean>> byDestination = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> bySession = new ConcurrentHashMap<>();
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        StompCommand command = accessor.getCommand();
+        String sessionId = accessor.getSessionId();
+        if (command == null || sessionId == null) {
+            return message;
+        }
+        switch (command) {
+            case SUBSCRIBE -> subscribe(sessionId, accessor.getSubscriptionId(), accessor.getDestination());
+            case UNSUBSCRIBE -> unsubscribe(sessionId, accessor.getSubscriptionId());
+            case DISCONNECT -> disconnect(sessionId);
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Current subscribers of a destination; a live view, may change while iterating.
+     */
+    public Iterable<Subscriber> subscribers(String destination) {
+        Map<Subscriber, Boolean> subscribers = byDestination.get(destination);
+        return subscribers == null ? List.of() : subscribers.keySet();
+    }
+
+    public int count(String destination) {
+        Map<Subscriber, Boolean> subscribers = byDestination.get(destination);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+
+    /**
+     * Sessions receiving a room's messages, JSON and binary.
+     */
+    public int roomSubscriberCount(String roomId) {
+        String destination = ROOM_TOPIC_PREFIX + roomId;
+        return count(destination) + count(BinaryProtocol.binaryDestination(destination));
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        if (subscriptionId == null || destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return;
+        }
+        bySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        // compute, not computeIfAbsent: a concurrent remove may drop the map once it is empty
+        byDestination.compute(destination, (d, subscribers) -> {
+            Map<Subscriber, Boolean> result = subscribers != null ? subscribers : new ConcurrentHashMap<>();
+            result.put(new Subscriber(sessionId, subscriptionId), Boolean.TRUE);
+            return result;
+        });
+    }
+
+    private void unsubscribe(String sessionId, String subscriptionId) {
+        Map<String, String> subscriptions = bySession.get(sessionId);
+        if (subscriptionId == null || subscriptions == null) {
+            return;
+        }
+        String destination = subscriptions.remove(subscriptionId);
+        if (destination != null) {
+            remove(destination, new Subscriber(sessionId, subscriptionId));
+        }
+    }
+
+    private void disconnect(String sessionId) {
+        Map<String, String> subscriptions = bySession.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.forEach((subscriptionId, destination) ->
+                    remove(destination, new Subscriber(sessionId, subscriptionId)));
+        }
+    }
+
+    private void remove(String destination, Subscriber subscriber) {
+        byDestination.computeIfPresent(destination, (d, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+}
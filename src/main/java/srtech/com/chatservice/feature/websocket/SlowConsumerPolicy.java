@@ -0,0 +1,22 @@
+package srtech.com.chatservice.feature.websocket;
+
+/**
+ * What to do when a session's outbound buffer grows past its limit.
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Discard the oldest queued frames until the buffer is back under the limit.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Keep only the latest queued presence frame per room and user, then drop oldest if still over the limit.
+     */
+    CONFLATE_PRESENCE,
+
+    /**
+     * Close the session with a status telling the client to reconnect and resync its history.
+     */
+    DISCONNECT
+}
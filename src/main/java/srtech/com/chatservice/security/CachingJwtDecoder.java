@@ -0,0 +1,62 @@
+package srtech.com.chatservice.security;
+
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers access tokens that passed signature and claim validation, so a token presented again is not
+ * RSA-verified on every request.
+ * <p>
+ * Entries are keyed by the token's SHA-256 and expire at the token's {@code exp}. Revoked tokens are
+ * rejected on hit and never cached. The cache is an LRU bounded to {@code maxEntries}; past that the least
+ * recently presented token is dropped, so it simply pays for one verification when it comes back.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final TokenRevocationService revocationService;
+    private final Map<String, Jwt> verified;
+
+    public CachingJwtDecoder(JwtDecoder delegate, TokenRevocationService revocationService, int maxEntries) {
+        this.delegate = delegate;
+        this.revocationService = revocationService;
+        this.verified = Collections.synchronizedMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Jwt> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String tokenHash = TokenRevocationService.hash(token);
+        Jwt cached = verified.get(tokenHash);
+        if (cached != null) {
+            if (revocationService.isRevokedLocally(tokenHash)) {
+                verified.remove(tokenHash);
+                throw new BadJwtException("Token has been revoked");
+            }
+            if (cached.getExpiresAt().isAfter(Instant.now())) {
+                return cached;
+            }
+            verified.remove(tokenHash);
+        }
+
+        Jwt jwt = delegate.decode(token);
+        if (revocationService.isRevoked(tokenHash)) {
+            throw new BadJwtException("Token has been revoked");
+        }
+        if (jwt.getExpiresAt() != null) {
+            verified.put(tokenHash, jwt);
+        }
+        return jwt;
+    }
+}
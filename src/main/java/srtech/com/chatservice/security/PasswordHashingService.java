@@ -0,0 +1,106 @@
+package srtech.com.chatservice.security;
+
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing (BCrypt encode on registration, the whole credential check on login) on its own
+ * small pool, so a signup or login burst costs at most {@code threads} cores and never holds request or
+ * WebSocket threads. Work beyond the queue limit is refused at once with
+ * {@link PasswordHashingRejectedException} instead of piling up.
+ * <p>
+ * The blocking work that follows a hash (saving the new user, signing tokens) runs on a second pool,
+ * {@link #followUpExecutor()}, bounded and refused the same way but separate, so it never takes a hashing
+ * thread. The pools are exposed as the {@code password.hashing} and {@code password.follow_up} executor
+ * metrics (queue size, active threads, task and idle times).
+ */
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ChatMetrics chatMetrics;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService followUp;
+    private final Executor followUpExecutor;
+    private final long retryAfterSeconds;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  ChatMetrics chatMetrics,
+                                  @Value("${chat.security.password.hashing-threads:0}") int threads,
+                                  @Value("${chat.security.password.queue-capacity:64}") int queueCapacity,
+                                  @Value("${chat.security.password.follow-up-threads:0}") int followUpThreads,
+                                  @Value("${chat.security.password.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.chatMetrics = chatMetrics;
+        this.retryAfterSeconds = retryAfterSeconds;
+        // Default to half the cores, leaving the rest for message traffic
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(chatMetrics.getMeterRegistry(), pool, "password.hashing");
+
+        ThreadPoolExecutor followUpPool = new ThreadPoolExecutor(
+                followUpThreads > 0 ? followUpThreads : poolSize, followUpThreads > 0 ? followUpThreads : poolSize,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-follow-up-"), new ThreadPoolExecutor.AbortPolicy());
+        this.followUp = ExecutorServiceMetrics.monitor(chatMetrics.getMeterRegistry(), followUpPool, "password.follow_up");
+        this.followUpExecutor = task -> {
+            try {
+                followUp.execute(task);
+            } catch (RejectedExecutionException e) {
+                chatMetrics.recordPasswordHashingRejected();
+                log.warn("Password follow-up queue full ({} queued), request refused", followUpPool.getQueue().size());
+                throw new PasswordHashingRejectedException(retryAfterSeconds);
+            }
+        };
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Run work whose cost is dominated by password hashing, such as authenticating credentials.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            chatMetrics.recordPasswordHashingRejected();
+            log.warn("Password hashing queue full ({} queued), request refused", pool.getQueue().size());
+            return CompletableFuture.failedFuture(new PasswordHashingRejectedException(retryAfterSeconds));
+        }
+    }
+
+    /**
+     * Executor for the continuation of a hashing result. A full queue fails the continuation with
+     * {@link PasswordHashingRejectedException}, answered with 503 like a full hashing queue.
+     */
+    public Executor followUpExecutor() {
+        return followUpExecutor;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+        followUp.shutdown();
+    }
+}
@@ -0,0 +1,121 @@
+package srtech.com.chatservice.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked access tokens, identified by the SHA-256 of the token.
+ * <p>
+ * A revocation is stored in Redis until the token would have expired anyway, and published so every node
+ * adds it to its local set at once. Cached tokens are checked against the local set only; Redis is
+ * consulted when a token is verified for the first time on this node, which also covers revocations
+ * published while the node was down.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private static final String REVOKED_PREFIX = "jwt:revoked:";
+    private static final String REVOCATION_CHANNEL = "jwt:revocations";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    // Token hash to the token's expiry in epoch millis, past that the entry is useless
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate,
+                                  RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this::onRevocation, new ChannelTopic(REVOCATION_CHANNEL));
+    }
+
+    public static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Revoke the token on every node until it expires.
+     */
+    public void revoke(Jwt jwt) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        String tokenHash = hash(jwt.getTokenValue());
+        revoked.put(tokenHash, expiresAt.toEpochMilli());
+        redisTemplate.opsForValue().set(REVOKED_PREFIX + tokenHash, "1", Duration.between(Instant.now(), expiresAt));
+        redisTemplate.convertAndSend(REVOCATION_CHANNEL, tokenHash + ":" + expiresAt.toEpochMilli());
+        log.info("Revoked access token of {}", jwt.getSubject());
+    }
+
+    /**
+     * Local check only, cheap enough for every request.
+     */
+    public boolean isRevokedLocally(String tokenHash) {
+        Long expiresAt = revoked.get(tokenHash);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            revoked.remove(tokenHash);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Local set first, then Redis. A Redis failure counts as not revoked, like a token without revocation
+     * support; the local set still applies.
+     */
+    public boolean isRevoked(String tokenHash) {
+        if (isRevokedLocally(tokenHash)) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(REVOKED_PREFIX + tokenHash));
+        } catch (Exception e) {
+            log.error("Error checking token revocation in Redis: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void onRevocation(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 2);
+        if (parts.length != 2) {
+            return;
+        }
+        try {
+            revoked.put(parts[0], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed token revocation: {}", e.getMessage());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+}
@@ -16,6 +16,8 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DataInitializer {
 
+    private static final List<String> ROLES = List.of("ADMIN", "USER");
+
     private final RoleRepository roleRepository;
     private final AuthorityRepository authorityRepository;
 
@@ -25,15 +27,18 @@ public class DataInitializer {
      */
     @PostConstruct
     void initData() {
+        // A seeded database is recognised with one query instead of re-saving every role on each boot
+        if (roleRepository.countByAuthoritiesIsNotEmpty() >= ROLES.size()) {
+            return;
+        }
         roleInit();
         authorityInit();
         roleAuthorityInit();
     }
 
     void roleInit() {
-        List<String> roles = List.of("ADMIN", "USER");
         if (roleRepository.count() == 0) {
-            roles.forEach(role -> {
+            ROLES.forEach(role -> {
                 Role newRole = new Role();
                 newRole.setName(role);
                 roleRepository.save(newRole);
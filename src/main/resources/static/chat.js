@@ -6,6 +6,14 @@ let currentUser = null;
 let accessToken = null;
 let refreshToken = null;
 let currentRoom = null;
+let useSockJs = !window.WebSocket;
+// Highest room sequence shown, used to detect gaps and resume after a reconnect
+let lastSeq = 0;
+// Base URL of the node owning the current room, empty for this node
+let roomNodeUrl = '';
+// Room directory paging
+const ROOM_PAGE_SIZE = 50;
+let roomDirectoryCursor = null;
 
 // Page elements
 const authPage = document.querySelector('#auth-page');
@@ -157,12 +165,15 @@ function handleAuthSuccess(authData, userData) {
 }
 
 // Room Management Functions
-async function loadRooms() {
+async function loadRooms(cursor = null) {
     try {
-        const response = await authenticatedFetch('/api/v1/rooms');
+        const after = cursor ? `&cursor=${encodeURIComponent(cursor)}` : '';
+        const response = await authenticatedFetch(`/api/v1/rooms/directory?size=${ROOM_PAGE_SIZE}${after}`);
         if (response.ok) {
-            const rooms = await response.json();
-            displayRooms(rooms);
+            const directory = await response.json();
+            displayRooms(directory.rooms, cursor !== null);
+            roomDirectoryCursor = directory.nextCursor;
+            showMoreRoomsButton(directory.nextCursor !== null);
         } else {
             showError('Failed to load rooms');
         }
@@ -171,11 +182,13 @@ async function loadRooms() {
     }
 }
 
-function displayRooms(rooms) {
+function displayRooms(rooms, append) {
     const roomsList = document.getElementById('roomsList');
-    roomsList.innerHTML = '';
+    if (!append) {
+        roomsList.innerHTML = '';
+    }
 
-    if (rooms.length === 0) {
+    if (rooms.length === 0 && !append) {
         roomsList.innerHTML = '<p>No rooms available. Create one!</p>';
         return;
     }
@@ -186,12 +199,31 @@ function displayRooms(rooms) {
         roomElement.innerHTML = `
             <h4>${room.name}</h4>
             <p>${room.description || 'No description'}</p>
+            <p>${room.memberCount} member${room.memberCount === 1 ? '' : 's'}</p>
             <button onclick="joinRoom('${room.id}', '${room.name}')" class="join-room-btn">Join Room</button>
         `;
         roomsList.appendChild(roomElement);
     });
 }
 
+function showMoreRoomsButton(visible) {
+    let button = document.getElementById('moreRoomsBtn');
+    if (!visible) {
+        if (button) {
+            button.remove();
+        }
+        return;
+    }
+    if (!button) {
+        button = document.createElement('button');
+        button.id = 'moreRoomsBtn';
+        button.className = 'join-room-btn';
+        button.textContent = 'More rooms';
+        button.onclick = () => loadRooms(roomDirectoryCursor);
+        document.getElementById('roomsList').after(button);
+    }
+}
+
 async function createRoom(event) {
     event.preventDefault();
 
@@ -224,9 +256,24 @@ async function createRoom(event) {
 
 function joinRoom(roomId, roomName) {
     currentRoom = { id: roomId, name: roomName };
+    lastSeq = 0;
     document.getElementById('room-name').textContent = roomName;
     showChatPage();
-    connectToChat();
+    locateRoomNode(roomId).then(connectToChat);
+}
+
+async function locateRoomNode(roomId) {
+    roomNodeUrl = '';
+    try {
+        // With room affinity enabled the room's owner node does its fan-out, connect there directly
+        const response = await authenticatedFetch(`/api/v1/rooms/${roomId}/node`);
+        if (response.ok) {
+            const node = await response.json();
+            roomNodeUrl = node.local ? '' : (node.url || '');
+        }
+    } catch (error) {
+        console.error('Error locating room node, using this node:', error);
+    }
 }
 
 // WebSocket Chat Functions
@@ -235,12 +282,13 @@ function connectToChat() {
         stompClient.disconnect();
     }
 
-    const socket = new SockJS('/ws');
-    stompClient = Stomp.over(socket);
+    stompClient = Stomp.over(createSocket());
 
     // Set authorization header for WebSocket connection
     const connectHeaders = {
-        'Authorization': `Bearer ${accessToken}`
+        'Authorization': `Bearer ${accessToken}`,
+        // stomp.js splits NUL-terminated frames, so coalesced server frames are safe to accept
+        'chat-batch': 'true'
     };
 
     stompClient.connect(connectHeaders, onConnected, onError);
@@ -250,6 +298,8 @@ function onConnected() {
     // Subscribe to the public topic
     stompClient.subscribe(`/topic/room/${currentRoom.id}`, onMessageReceived);
     stompClient.subscribe(`/topic/room/${currentRoom.id}/presence`, onPresenceUpdate);
+    // Frames dropped by the rate limit are reported here; the connection stays open
+    stompClient.subscribe('/user/queue/errors', onRateLimited);
 
     // Tell your username to the server
     stompClient.send(`/app/chat.addUser/${currentRoom.id}`,
@@ -261,11 +311,45 @@ function onConnected() {
     );
 
     document.querySelector('.connecting').classList.add('hidden');
-    loadRoomMessages();
+    if (lastSeq > 0) {
+        // Reconnect: fetch only what was missed while disconnected
+        syncSince(lastSeq);
+    } else {
+        loadRoomMessages();
+    }
+}
+
+function createSocket() {
+    if (useSockJs) {
+        return new SockJS(`${roomNodeUrl}/ws`);
+    }
+    // Native WebSocket avoids SockJS framing and lets the browser negotiate permessage-deflate
+    const base = new URL(roomNodeUrl || window.location.origin);
+    const protocol = base.protocol === 'https:' ? 'wss:' : 'ws:';
+    return new WebSocket(`${protocol}//${base.host}/ws-native`);
+}
+
+function onRateLimited(payload) {
+    const notice = JSON.parse(payload.body);
+    const seconds = Math.ceil(notice.retryAfterMillis / 1000);
+    showError(`You are sending messages too fast, try again in ${seconds}s`);
 }
 
 function onError(error) {
     console.error('WebSocket connection error:', error);
+    if (error && error.headers && error.headers['retry-after-ms']) {
+        // Node saturated: the CONNECT was refused and the connection closed, reconnect once allowed
+        document.querySelector('.connecting').classList.remove('hidden');
+        document.querySelector('.connecting').textContent = 'The server is busy, reconnecting...';
+        setTimeout(connectToChat, parseInt(error.headers['retry-after-ms'], 10));
+        return;
+    }
+    if (!useSockJs && !stompClient.connected) {
+        // Some proxies block plain WebSocket upgrades, fall back to SockJS once
+        useSockJs = true;
+        connectToChat();
+        return;
+    }
     document.querySelector('.connecting').textContent = 'Could not connect to WebSocket server. Please refresh this page and try again!';
     document.querySelector('.connecting').style.color = 'red';
 }
@@ -293,6 +377,22 @@ function sendMessage(event) {
 function onMessageReceived(payload) {
     const message = JSON.parse(payload.body);
 
+    // JOIN/LEAVE notifications carry seq 0 and are not sequenced
+    if (message.seq) {
+        if (message.seq <= lastSeq) {
+            return; // already shown
+        }
+        if (lastSeq > 0 && message.seq > lastSeq + 1) {
+            // Gap: fetch the missing messages first so they are shown in order
+            syncSince(lastSeq, message.seq).then(() => onMessageReceived(payload));
+            return;
+        }
+        lastSeq = message.seq;
+    }
+    renderMessage(message);
+}
+
+function renderMessage(message) {
     const messageElement = document.createElement('li');
     messageElement.classList.add('chat-message');
 
@@ -335,6 +435,27 @@ function onPresenceUpdate(payload) {
     document.getElementById('online-count').textContent = presenceData.count || 0;
 }
 
+async function syncSince(seq, upTo) {
+    try {
+        const response = await authenticatedFetch(`/api/v1/rooms/${currentRoom.id}/messages?since=${seq}`);
+        if (response.ok) {
+            const messages = await response.json();
+            messages
+                .filter(message => message.seq > lastSeq && (!upTo || message.seq < upTo))
+                .forEach(message => {
+                    lastSeq = message.seq;
+                    renderMessage(message);
+                });
+        }
+    } catch (error) {
+        console.error('Error syncing missed messages:', error);
+    }
+    if (upTo) {
+        // Whatever could not be fetched is gone, don't try again for every later message
+        lastSeq = Math.max(lastSeq, upTo - 1);
+    }
+}
+
 async function loadRoomMessages() {
     try {
         const response = await authenticatedFetch(`/api/v1/rooms/${currentRoom.id}/messages?limit=50`);
@@ -352,7 +473,10 @@ function displayMessages(messages) {
     messageArea.innerHTML = '';
 
     messages.forEach(message => {
-        onMessageReceived({ body: JSON.stringify(message) });
+        renderMessage(message);
+        if (message.seq) {
+            lastSeq = Math.max(lastSeq, message.seq);
+        }
     });
 }
 
@@ -460,6 +584,18 @@ function logout() {
         stompClient.disconnect();
     }
 
+    // Revoke both tokens server-side; the local session is cleared either way
+    if (accessToken) {
+        fetch('/api/v1/auth/logout', {
+            method: 'POST',
+            headers: {
+                'Authorization': `Bearer ${accessToken}`,
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify({ refreshToken })
+        }).catch(error => console.error('Logout request failed:', error));
+    }
+
     // Clear stored data
     localStorage.removeItem('accessToken');
     localStorage.removeItem('refreshToken');
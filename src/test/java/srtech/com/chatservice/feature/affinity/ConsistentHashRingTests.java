@@ -0,0 +1,91 @@
+package srtech.com.chatservice.feature.affinity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsistentHashRingTests {
+
+    private static final List<String> NODES = List.of("node-a", "node-b", "node-c");
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 100);
+
+        assertThat(ring.isEmpty()).isTrue();
+        assertThatThrownBy(() -> ring.nodeFor("room-1")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void nodesFromStartsWithTheOwnerAndVisitsEveryNodeOnce() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 100);
+
+        for (int i = 0; i < 100; i++) {
+            String key = "room-" + i;
+            List<String> order = ring.nodesFrom(key);
+            assertThat(order).first().isEqualTo(ring.nodeFor(key));
+            assertThat(order).containsExactlyInAnyOrderElementsOf(NODES);
+        }
+    }
+
+    @Test
+    void keysAreSpreadOverAllNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 100);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            counts.merge(ring.nodeFor("room-" + i), 1, Integer::sum);
+        }
+
+        assertThat(counts).containsOnlyKeys(NODES);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(600, 1400));
+    }
+
+    @Test
+    void removingANodeOnlyMovesItsOwnKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(NODES, 100);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-a", "node-b"), 100);
+
+        for (int i = 0; i < 3000; i++) {
+            String key = "room-" + i;
+            String owner = before.nodeFor(key);
+            if (!owner.equals("node-c")) {
+                assertThat(after.nodeFor(key)).isEqualTo(owner);
+            }
+        }
+    }
+
+    @Test
+    void partitionsAreBalancedWithinOne() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 100);
+
+        String[] owners = RoomAffinity.assignPartitions(ring, NODES.size(), 16);
+
+        assertThat(owners).doesNotContainNull();
+        Map<String, Integer> load = new HashMap<>();
+        Arrays.stream(owners).forEach(owner -> load.merge(owner, 1, Integer::sum));
+        assertThat(load).containsOnlyKeys(NODES);
+        assertThat(load.values()).containsExactlyInAnyOrder(5, 5, 6);
+    }
+
+    @Test
+    void partitionAssignmentIsTheSameOnEveryNode() {
+        String[] first = RoomAffinity.assignPartitions(new ConsistentHashRing(NODES, 100), NODES.size(), 12);
+        String[] second = RoomAffinity.assignPartitions(
+                new ConsistentHashRing(List.of("node-c", "node-a", "node-b"), 100), NODES.size(), 12);
+
+        assertThat(second).containsExactly(first);
+    }
+
+    @Test
+    void singleNodeOwnsEveryPartition() {
+        String[] owners = RoomAffinity.assignPartitions(new ConsistentHashRing(List.of("node-a"), 100), 1, 6);
+
+        assertThat(owners).containsOnly("node-a").hasSize(6);
+    }
+}
@@ -0,0 +1,71 @@
+package srtech.com.chatservice.feature.auth.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import srtech.com.chatservice.feature.auth.service.AuthServiceImpl;
+import srtech.com.chatservice.feature.user.service.UserService;
+import srtech.com.chatservice.security.PasswordHashingRejectedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthControllerTests {
+
+    private AuthServiceImpl authService;
+    private UserService userService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        authService = mock(AuthServiceImpl.class);
+        userService = mock(UserService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new AuthController(authService, userService)).build();
+    }
+
+    @Test
+    void refusedLoginIsAnswered503WithRetryAfter() throws Exception {
+        when(authService.login(any())).thenReturn(CompletableFuture.failedFuture(
+                new CompletionException(new PasswordHashingRejectedException(2))));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"alice@example.com\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+
+    @Test
+    void refusedRegistrationIsAnswered503WithRetryAfter() throws Exception {
+        when(userService.register(any())).thenReturn(CompletableFuture.failedFuture(
+                new PasswordHashingRejectedException(2)));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userName\":\"alice\",\"email\":\"alice@example.com\","
+                                + "\"password\":\"secret\",\"confirm_password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+    }
+}
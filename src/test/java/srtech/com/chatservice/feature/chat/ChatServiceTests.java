@@ -0,0 +1,98 @@
+package srtech.com.chatservice.feature.chat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import srtech.com.chatservice.domain.ChatMessage;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.feature.kafka.KafkaProducerService;
+import srtech.com.chatservice.feature.outbox.OutboxService;
+import srtech.com.chatservice.feature.redis.RedisService;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTests {
+
+    private ChatMessageRepository messageRepository;
+    private RedisService redisService;
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(ChatMessageRepository.class);
+        redisService = mock(RedisService.class);
+        chatService = new ChatService(messageRepository, mock(ChatRoomRepository.class),
+                mock(KafkaProducerService.class), redisService, mock(OutboxService.class));
+    }
+
+    @Test
+    void resumeIsServedFromTheCacheWhenItHoldsTheNextSequence() {
+        cached(5, 4, 0, 3);
+
+        assertThat(chatService.getMessagesSince("room-1", 2, 100))
+                .extracting(MessageDto::getSeq).containsExactly(3L, 4L, 5L);
+        verify(messageRepository, never()).findByRoomIdAndSeqGreaterThanOrderBySeqAsc(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void cachedResumeIsLimited() {
+        cached(5, 4, 3);
+
+        assertThat(chatService.getMessagesSince("room-1", 2, 2))
+                .extracting(MessageDto::getSeq).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void clientThatIsUpToDateGetsNothing() {
+        cached(5, 4);
+
+        assertThat(chatService.getMessagesSince("room-1", 5, 100)).isEmpty();
+        verify(messageRepository, never()).findByRoomIdAndSeqGreaterThanOrderBySeqAsc(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void resumeBeyondTheCacheGoesToTheDatabase() {
+        cached(10, 9);
+        when(messageRepository.findByRoomIdAndSeqGreaterThanOrderBySeqAsc("room-1", 2, PageRequest.of(0, 100)))
+                .thenReturn(List.of(stored(3), stored(4)));
+
+        assertThat(chatService.getMessagesSince("room-1", 2, 100))
+                .extracting(MessageDto::getSeq).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void emptyCacheGoesToTheDatabase() {
+        cached();
+        when(messageRepository.findByRoomIdAndSeqGreaterThanOrderBySeqAsc("room-1", 0, PageRequest.of(0, 50)))
+                .thenReturn(List.of(stored(1)));
+
+        assertThat(chatService.getMessagesSince("room-1", 0, 50))
+                .extracting(MessageDto::getSeq).containsExactly(1L);
+    }
+
+    /**
+     * Recent list newest first, as Redis returns it; 0 stands for an unsequenced JOIN/LEAVE entry.
+     */
+    private void cached(long... seqs) {
+        when(redisService.getRecentMessages("room-1")).thenReturn(Arrays.stream(seqs)
+                .mapToObj(seq -> new MessageDto("m" + seq, "room-1", "u1", "alice", "hi",
+                        seq == 0 ? ChatMessage.MessageType.JOIN : ChatMessage.MessageType.CHAT, seq, seq))
+                .toList());
+    }
+
+    private static ChatMessage stored(long seq) {
+        return new ChatMessage("m" + seq, "room-1", "u1", "alice", "hi", ChatMessage.MessageType.CHAT,
+                LocalDateTime.of(2024, 1, 1, 0, 0), seq);
+    }
+}
@@ -0,0 +1,82 @@
+package srtech.com.chatservice.feature.chat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import srtech.com.chatservice.domain.dto.RoomSummary;
+import srtech.com.chatservice.feature.chat.RoomDirectory.DirectoryPage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoomDirectoryTests {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_000_000);
+
+    private ChatRoomRepository roomRepository;
+    private RoomDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        roomRepository = mock(ChatRoomRepository.class);
+        directory = new RoomDirectory(roomRepository, 30, 100, 1000);
+    }
+
+    @Test
+    void nextPageSeeksPastTheLastRoomInsteadOfSkippingRows() {
+        when(roomRepository.findSummaries(PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.of(room("r-3", NOON), room("r-2", NOON)), PageRequest.of(0, 2), true));
+        when(roomRepository.findSummariesAfter(NOON, "r-2", PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.of(room("r-1", NOON.minusDays(1))), PageRequest.of(0, 2), false));
+
+        DirectoryPage first = directory.getPage(null, 2);
+        DirectoryPage second = directory.getPage(first.nextCursor(), 2);
+
+        assertThat(first.rooms()).extracting(RoomSummary::getId).containsExactly("r-3", "r-2");
+        assertThat(first.nextCursor()).isNotNull();
+        assertThat(second.rooms()).extracting(RoomSummary::getId).containsExactly("r-1");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void cursorRoundTripsTheLastRoomsPosition() {
+        String cursor = RoomDirectory.encodeCursor(room("room|with|bars", NOON));
+
+        assertThat(RoomDirectory.decodeCursor(cursor)).isEqualTo(new RoomDirectory.Cursor(NOON, "room|with|bars"));
+    }
+
+    @Test
+    void rejectsACursorItDidNotIssue() {
+        assertThatIllegalArgumentException().isThrownBy(() -> directory.getPage("not a cursor!", 10));
+        assertThatIllegalArgumentException().isThrownBy(() -> directory.getPage("bm8tc2VwYXJhdG9y", 10));
+        verify(roomRepository, never()).findSummariesAfter(any(), any(), any());
+    }
+
+    @Test
+    void pagesAreCachedUntilInvalidated() {
+        when(roomRepository.findSummaries(PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(List.of(room("r-1", NOON)), PageRequest.of(0, 10), false));
+
+        directory.getPage(null, 10);
+        directory.getPage("", 10);
+        verify(roomRepository, times(1)).findSummaries(any());
+
+        directory.invalidate();
+        directory.getPage(null, 10);
+        verify(roomRepository, times(2)).findSummaries(any());
+    }
+
+    private static RoomSummary room(String id, LocalDateTime createdAt) {
+        return new RoomSummary(id, id, null, createdAt, 1);
+    }
+}
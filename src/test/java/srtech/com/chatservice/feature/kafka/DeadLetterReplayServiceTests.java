@@ -0,0 +1,43 @@
+package srtech.com.chatservice.feature.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadLetterReplayServiceTests {
+
+    @Test
+    void replayGoesBackToTheOriginalTopicAndPartition() {
+        ConsumerRecord<String, byte[]> deadLetter = new ConsumerRecord<>("user-presence.DLT", 0, 42L, "user-1",
+                new byte[]{1, 2, 3});
+        deadLetter.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "user-presence".getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(7).array());
+        deadLetter.headers().add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, "boom".getBytes(StandardCharsets.UTF_8));
+        deadLetter.headers().add("trace-id", "abc".getBytes(StandardCharsets.UTF_8));
+
+        ProducerRecord<String, byte[]> original = DeadLetterReplayService.toOriginal(deadLetter, "ignored");
+
+        assertThat(original.topic()).isEqualTo("user-presence");
+        assertThat(original.partition()).isEqualTo(7);
+        assertThat(original.key()).isEqualTo("user-1");
+        assertThat(original.value()).containsExactly(1, 2, 3);
+        assertThat(original.headers().toArray()).extracting(header -> header.key()).containsExactly("trace-id");
+    }
+
+    @Test
+    void recordWithoutDeadLetterHeadersUsesTheRequestedTopic() {
+        ConsumerRecord<String, byte[]> deadLetter = new ConsumerRecord<>("chat-messages.DLT", 0, 0L, "room-1",
+                new byte[0]);
+
+        ProducerRecord<String, byte[]> original = DeadLetterReplayService.toOriginal(deadLetter, "chat-messages");
+
+        assertThat(original.topic()).isEqualTo("chat-messages");
+        assertThat(original.partition()).isNull();
+    }
+}
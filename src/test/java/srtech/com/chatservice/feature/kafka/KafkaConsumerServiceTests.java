@@ -0,0 +1,88 @@
+package srtech.com.chatservice.feature.kafka;
+
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.MessageType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.feature.chat.ChatMessageRepository;
+import srtech.com.chatservice.feature.chat.ChatService;
+import srtech.com.chatservice.feature.chat.RoomDirectory;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+import srtech.com.chatservice.feature.metrics.HotRoomTracker;
+import srtech.com.chatservice.feature.redis.RedisService;
+import srtech.com.chatservice.feature.websocket.RoomBroadcaster;
+import srtech.com.chatservice.feature.websocket.RoomSubscriptions;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KafkaConsumerServiceTests {
+
+    private RedisService redisService;
+    private ChatService chatService;
+    private RoomBroadcaster roomBroadcaster;
+    private KafkaConsumerService consumer;
+
+    @BeforeEach
+    void setUp() {
+        redisService = mock(RedisService.class);
+        chatService = mock(ChatService.class);
+        roomBroadcaster = mock(RoomBroadcaster.class);
+        MessageDeduplicator deduplicator =
+                new MessageDeduplicator(redisService, mock(ChatMessageRepository.class), 100, 24);
+        consumer = new KafkaConsumerService(roomBroadcaster, chatService, redisService, new ChatMetrics(new SimpleMeterRegistry()),
+                deduplicator, mock(HotRoomTracker.class), mock(RoomSubscriptions.class), mock(RoomDirectory.class));
+        when(redisService.admitMessage(eq("room-1"), eq("m-1"), eq(true), any())).thenReturn(7L);
+    }
+
+    @Test
+    void failedBroadcastIsNotMarkedProcessedSoTheRetryRunsAgain() {
+        ChatMessageAvro record = record();
+        Acknowledgment firstAttempt = mock(Acknowledgment.class);
+        doThrow(new IllegalStateException("broker down"))
+                .doNothing()
+                .when(roomBroadcaster).broadcastMessage(any(MessageDto.class), eq(record));
+
+        assertThatThrownBy(() -> consumer.consumeChatMessage(record, "chat-messages", 0, 10, firstAttempt))
+                .isInstanceOf(IllegalStateException.class);
+        verify(redisService, never()).completeMessage(any(), any());
+        verify(firstAttempt, never()).acknowledge();
+
+        Acknowledgment retry = mock(Acknowledgment.class);
+        consumer.consumeChatMessage(record, "chat-messages", 0, 10, retry);
+
+        verify(roomBroadcaster, times(2)).broadcastMessage(any(MessageDto.class), eq(record));
+        verify(redisService).completeMessage(any(MessageDto.class), any());
+        verify(retry).acknowledge();
+    }
+
+    @Test
+    void redeliveryAfterSuccessIsAcknowledgedWithoutSavingOrBroadcasting() {
+        ChatMessageAvro record = record();
+        doNothing().when(roomBroadcaster).broadcastMessage(any(MessageDto.class), eq(record));
+        consumer.consumeChatMessage(record, "chat-messages", 0, 10, mock(Acknowledgment.class));
+
+        Acknowledgment redelivery = mock(Acknowledgment.class);
+        consumer.consumeChatMessage(record, "chat-messages", 0, 10, redelivery);
+
+        verify(chatService, times(1)).saveMessage(any());
+        verify(roomBroadcaster, times(1)).broadcastMessage(any(MessageDto.class), eq(record));
+        verify(redelivery).acknowledge();
+    }
+
+    private static ChatMessageAvro record() {
+        return new ChatMessageAvro("m-1", "room-1", "user-1", "alice", "hello", MessageType.CHAT,
+                System.currentTimeMillis());
+    }
+}
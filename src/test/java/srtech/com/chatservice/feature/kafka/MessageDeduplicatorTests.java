@@ -0,0 +1,91 @@
+package srtech.com.chatservice.feature.kafka;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import srtech.com.chatservice.domain.ChatMessage;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.feature.chat.ChatMessageRepository;
+import srtech.com.chatservice.feature.redis.RedisService;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageDeduplicatorTests {
+
+    private RedisService redisService;
+    private MessageDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        redisService = mock(RedisService.class);
+        deduplicator = new MessageDeduplicator(redisService, mock(ChatMessageRepository.class), 2, 24);
+    }
+
+    @Test
+    void newMessageIsNumberedThroughRedis() {
+        when(redisService.admitMessage(eq("room-1"), eq("m-1"), eq(true), any())).thenReturn(7L);
+
+        assertThat(deduplicator.admit("room-1", "m-1", true)).isEqualTo(7);
+    }
+
+    @Test
+    void processedMessageIsSkippedFromTheWindowWithoutARoundTrip() {
+        deduplicator.markProcessed(message("m-1"));
+
+        assertThat(deduplicator.admit("room-1", "m-1", true)).isEqualTo(-1);
+        verify(redisService, never()).admitMessage(anyString(), anyString(), anyBoolean(), any());
+    }
+
+    @Test
+    void markerInRedisSkipsARedeliveryOnAnotherNodeAndIsRemembered() {
+        // A rebalance moved the partition here, so only the Redis marker knows about the message
+        when(redisService.admitMessage(eq("room-1"), eq("m-1"), eq(true), any())).thenReturn(-1L);
+
+        assertThat(deduplicator.admit("room-1", "m-1", true)).isEqualTo(-1);
+        assertThat(deduplicator.admit("room-1", "m-1", true)).isEqualTo(-1);
+        verify(redisService, times(1)).admitMessage(anyString(), anyString(), anyBoolean(), any());
+    }
+
+    @Test
+    void admittedButUnfinishedMessageIsAdmittedAgain() {
+        when(redisService.admitMessage(eq("room-1"), eq("m-1"), eq(true), any())).thenReturn(7L);
+
+        deduplicator.admit("room-1", "m-1", true);
+
+        assertThat(deduplicator.admit("room-1", "m-1", true)).isEqualTo(7);
+    }
+
+    @Test
+    void markProcessedCachesTheMessageWithTheMarker() {
+        MessageDto message = message("m-1");
+
+        deduplicator.markProcessed(message);
+
+        verify(redisService).completeMessage(message, Duration.ofHours(24));
+    }
+
+    @Test
+    void windowForgetsTheOldestIdsAndFallsBackToRedis() {
+        deduplicator.markProcessed(message("m-1"));
+        deduplicator.markProcessed(message("m-2"));
+        deduplicator.markProcessed(message("m-3"));
+        when(redisService.admitMessage(eq("room-1"), eq("m-1"), eq(true), any())).thenReturn(-1L);
+
+        assertThat(deduplicator.admit("room-1", "m-1", true)).isEqualTo(-1);
+        verify(redisService).admitMessage(eq("room-1"), eq("m-1"), eq(true), any());
+    }
+
+    static MessageDto message(String id) {
+        return new MessageDto(id, "room-1", "user-1", "alice", "hello", ChatMessage.MessageType.CHAT, 1L, 7L);
+    }
+}
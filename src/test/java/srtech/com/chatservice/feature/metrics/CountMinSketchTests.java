@@ -0,0 +1,56 @@
+package srtech.com.chatservice.feature.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTests {
+
+    @Test
+    void addReturnsTheRunningEstimate() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+
+        assertThat(sketch.add("room-1", 1)).isEqualTo(1);
+        assertThat(sketch.add("room-1", 4)).isEqualTo(5);
+        assertThat(sketch.estimate("room-1")).isEqualTo(5);
+        assertThat(sketch.estimate("room-2")).isZero();
+    }
+
+    @Test
+    void neverUndercounts() {
+        // Narrow on purpose so that keys collide
+        CountMinSketch sketch = new CountMinSketch(16, 3);
+        Map<String, Long> actual = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String key = "room-" + (i % 50);
+            sketch.add(key, i % 7 + 1);
+            actual.merge(key, (long) (i % 7 + 1), Long::sum);
+        }
+
+        actual.forEach((key, count) -> assertThat(sketch.estimate(key)).isGreaterThanOrEqualTo(count));
+    }
+
+    @Test
+    void heavyHitterStaysCloseToItsCount() {
+        CountMinSketch sketch = new CountMinSketch(4096, 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("hot", 1);
+            sketch.add("cold-" + i, 1);
+        }
+
+        assertThat(sketch.estimate("hot")).isBetween(1000L, 1010L);
+    }
+
+    @Test
+    void clearResetsEveryCount() {
+        CountMinSketch sketch = new CountMinSketch(64, 2);
+        sketch.add("room-1", 10);
+
+        sketch.clear();
+
+        assertThat(sketch.estimate("room-1")).isZero();
+    }
+}
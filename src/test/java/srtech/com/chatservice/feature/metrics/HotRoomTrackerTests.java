@@ -0,0 +1,145 @@
+package srtech.com.chatservice.feature.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import srtech.com.chatservice.feature.metrics.HotRoomTracker.HotRoom;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotRoomTrackerTests {
+
+    private static final long WINDOW_MILLIS = 10_000;
+
+    private SimpleMeterRegistry registry;
+    private HotRoomTracker tracker;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        tracker = new HotRoomTracker(new ChatMetrics(registry), 3, 4096, 4);
+        // Close the window opened by the constructor, so the next one starts at a known time
+        start = System.currentTimeMillis() + 60_000;
+        tracker.rotate(start);
+    }
+
+    @Test
+    void reportsNothingUntilTheWindowCloses() {
+        tracker.record("room-1", 1);
+
+        assertThat(tracker.getHotRooms()).isEmpty();
+    }
+
+    @Test
+    void keepsTheTopKRoomsHottestFirst() {
+        for (int i = 0; i < 50; i++) {
+            tracker.record("hot", 4);
+            if (i < 30) {
+                tracker.record("warm", 1);
+            }
+            if (i < 20) {
+                tracker.record("mild", 1);
+            }
+            if (i < 10) {
+                tracker.record("cold-" + i, 1);
+            }
+        }
+        tracker.rotate(start + WINDOW_MILLIS);
+
+        assertThat(tracker.getHotRooms()).containsExactly(
+                new HotRoom("hot", 5.0, 20.0),
+                new HotRoom("warm", 3.0, 3.0),
+                new HotRoom("mild", 2.0, 2.0));
+    }
+
+    @Test
+    void coldCandidateIsReplacedByAHotterRoom() {
+        tracker.record("a", 1);
+        tracker.record("b", 1);
+        tracker.record("c", 1);
+        tracker.record("d", 1);
+        tracker.record("d", 1);
+        tracker.rotate(start + WINDOW_MILLIS);
+
+        assertThat(tracker.getHotRooms())
+                .extracting(HotRoom::roomId)
+                .hasSize(3)
+                .startsWith("d");
+    }
+
+    @Test
+    void windowsTumble() {
+        tracker.record("room-1", 1);
+        tracker.rotate(start + WINDOW_MILLIS);
+        assertThat(tracker.getHotRooms()).extracting(HotRoom::roomId).containsExactly("room-1");
+
+        tracker.record("room-2", 1);
+        tracker.rotate(start + 2 * WINDOW_MILLIS);
+        assertThat(tracker.getHotRooms()).extracting(HotRoom::roomId).containsExactly("room-2");
+
+        tracker.rotate(start + 3 * WINDOW_MILLIS);
+        assertThat(tracker.getHotRooms()).isEmpty();
+    }
+
+    @Test
+    void publishesGaugesTaggedByRoom() {
+        for (int i = 0; i < 20; i++) {
+            tracker.record("room-1", 2);
+        }
+
+        tracker.rotate(start + WINDOW_MILLIS);
+
+        assertThat(registry.get("chat.room.hot.messages_per_second").tag("room", "room-1").gauge().value())
+                .isEqualTo(2.0);
+        assertThat(registry.get("chat.room.hot.deliveries_per_second").tag("room", "room-1").gauge().value())
+                .isEqualTo(4.0);
+    }
+
+    @Test
+    void gaugesAreDroppedOnceTrafficStops() {
+        tracker.record("room-1", 2);
+        tracker.rotate(start + WINDOW_MILLIS);
+        assertThat(registry.find("chat.room.hot.messages_per_second").tag("room", "room-1").gauge()).isNotNull();
+
+        tracker.rotate(start + 2 * WINDOW_MILLIS);
+
+        assertThat(registry.find("chat.room.hot.messages_per_second").tag("room", "room-1").gauge()).isNull();
+        assertThat(registry.find("chat.room.hot.deliveries_per_second").tag("room", "room-1").gauge()).isNull();
+    }
+
+    @Test
+    void countsEveryRecordFromConcurrentListeners() throws InterruptedException {
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int n = 0; n < perThread; n++) {
+                    tracker.record(n % 4 == 0 ? "warm" : "hot", 1);
+                }
+            });
+        }
+        go.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        tracker.rotate(start + WINDOW_MILLIS);
+
+        assertThat(tracker.getHotRooms()).containsExactly(
+                new HotRoom("hot", threads * perThread * 0.75 / 10, threads * perThread * 0.75 / 10),
+                new HotRoom("warm", threads * perThread * 0.25 / 10, threads * perThread * 0.25 / 10));
+    }
+}
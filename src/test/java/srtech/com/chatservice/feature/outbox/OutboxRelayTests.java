@@ -0,0 +1,109 @@
+package srtech.com.chatservice.feature.outbox;
+
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import srtech.com.chatservice.domain.OutboxEvent;
+import srtech.com.chatservice.feature.affinity.RoomAffinity;
+import srtech.com.chatservice.feature.websocket.AvroMessageConverter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTests {
+
+    private OutboxEventRepository repository;
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        RoomAffinity roomAffinity = mock(RoomAffinity.class);
+        when(roomAffinity.partitionFor("room-1")).thenReturn(2);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+        relay = new OutboxRelay(repository, kafkaTemplate, roomAffinity, transactionTemplate, 10, 1000);
+    }
+
+    @Test
+    void publishedBatchIsDeleted() {
+        when(repository.findOldestForUpdate(any(Pageable.class))).thenReturn(List.of(event(1), event(2)));
+        when(kafkaTemplate.send(anyString(), any(), anyString(), any())).thenReturn(acked());
+
+        relay.relay();
+
+        verify(kafkaTemplate).send(eq("chat-messages"), eq(2), eq("room-1"), eq(record(1)));
+        verify(kafkaTemplate).send(eq("chat-messages"), eq(2), eq("room-1"), eq(record(2)));
+        verify(repository).deleteByIdIn(List.of(1L, 2L));
+    }
+
+    @Test
+    void failedSendLeavesTheBatchInPlace() {
+        when(repository.findOldestForUpdate(any(Pageable.class))).thenReturn(List.of(event(1), event(2)));
+        when(kafkaTemplate.send(anyString(), any(), anyString(), any()))
+                .thenReturn(acked())
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        relay.relay();
+
+        // The transaction rolls back with nothing deleted, so the whole batch is sent again next run
+        verify(repository, never()).deleteByIdIn(any());
+        verify(repository, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void undecodableEventsAreParkedAndTheRestPublished() {
+        OutboxEvent unknownType = event(2);
+        unknownType.setEventType("com.chatengine.avro.Removed");
+        OutboxEvent corrupt = event(3);
+        corrupt.setPayload(new byte[]{1, 2, 3});
+        when(repository.findOldestForUpdate(any(Pageable.class))).thenReturn(List.of(event(1), unknownType, corrupt));
+        when(kafkaTemplate.send(anyString(), any(), anyString(), any())).thenReturn(acked());
+
+        relay.relay();
+
+        verify(kafkaTemplate).send(eq("chat-messages"), eq(2), eq("room-1"), eq(record(1)));
+        verify(repository).deleteByIdIn(List.of(1L));
+        verify(repository).markFailed(eq(List.of(2L, 3L)), any(LocalDateTime.class));
+    }
+
+    private static OutboxEvent event(long id) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setTopic("chat-messages");
+        event.setMessageKey("room-1");
+        event.setRoomId("room-1");
+        event.setEventType(ChatMessageAvro.getClassSchema().getFullName());
+        event.setPayload(AvroMessageConverter.encode(record(id)));
+        event.setCreatedAt(LocalDateTime.now());
+        return event;
+    }
+
+    private static ChatMessageAvro record(long id) {
+        return new ChatMessageAvro("m-" + id, "room-1", "user-1", "alice", "hello", MessageType.CHAT, id);
+    }
+
+    private static CompletableFuture<SendResult<String, Object>> acked() {
+        return CompletableFuture.completedFuture(null);
+    }
+}
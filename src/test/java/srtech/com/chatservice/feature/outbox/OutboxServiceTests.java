@@ -0,0 +1,102 @@
+package srtech.com.chatservice.feature.outbox;
+
+import com.chatengine.avro.ChatMessageAvro;
+import com.chatengine.avro.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import srtech.com.chatservice.domain.OutboxEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs {@link OutboxService} behind the same transaction advice the application context applies.
+ */
+class OutboxServiceTests {
+
+    private final InMemoryTransactionManager transactionManager = new InMemoryTransactionManager();
+    private OutboxEventRepository repository;
+    private OutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        ProxyFactory factory = new ProxyFactory(new OutboxService(repository));
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        outboxService = (OutboxService) factory.getProxy();
+    }
+
+    @Test
+    void appendOutsideATransactionFails() {
+        assertThatThrownBy(() -> outboxService.append("chat-messages", "room-1", "room-1", record()))
+                .isInstanceOf(IllegalTransactionStateException.class);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void appendJoinsTheCallersTransaction() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                outboxService.append("chat-messages", "room-1", "room-1", record()));
+
+        ArgumentCaptor<OutboxEvent> event = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(repository).save(event.capture());
+        assertThat(event.getValue().getTopic()).isEqualTo("chat-messages");
+        assertThat(event.getValue().getRoomId()).isEqualTo("room-1");
+        assertThat(event.getValue().getEventType()).isEqualTo(ChatMessageAvro.getClassSchema().getFullName());
+        assertThat(event.getValue().getFailedAt()).isNull();
+    }
+
+    private static ChatMessageAvro record() {
+        return new ChatMessageAvro("m-1", "room-1", "user-1", "alice", "hello", MessageType.CHAT, 1L);
+    }
+
+    /**
+     * Tracks whether a transaction is open, which is all the propagation rules need.
+     */
+    private static final class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+        private boolean active;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return active;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            active = true;
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            active = false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package srtech.com.chatservice.feature.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+import srtech.com.chatservice.feature.ratelimit.RateLimitInterceptor.RateLimitNotice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitInterceptorTests {
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private SimpleMeterRegistry registry;
+    private SimpMessagingTemplate messagingTemplate;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+    }
+
+    @Test
+    void framesWithinTheLimitPass() {
+        RateLimitInterceptor interceptor = interceptor(true, 2, 10);
+        Message<?> message = send("session-1", "alice", "/app/chat.sendMessage/room-1", null);
+
+        assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void overLimitFrameIsDroppedAndReportedToTheSendingSessionOnly() {
+        RateLimitInterceptor interceptor = interceptor(true, 1, 10);
+        interceptor.preSend(send("session-1", "alice", "/app/chat.sendMessage/room-1", null), channel);
+
+        Message<?> rejected = interceptor.preSend(
+                send("session-1", "alice", "/app/chat.sendMessage/room-1", "r-7"), channel);
+
+        // Dropped rather than thrown, so no ERROR frame is sent and the connection stays open
+        assertThat(rejected).isNull();
+        ArgumentCaptor<Object> notice = ArgumentCaptor.forClass(Object.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> headers = ArgumentCaptor.forClass(Map.class);
+        verify(messagingTemplate).convertAndSendToUser(eq("session-1"), eq(RateLimitInterceptor.ERROR_QUEUE),
+                notice.capture(), headers.capture());
+        assertThat(notice.getValue()).isInstanceOfSatisfying(RateLimitNotice.class, n -> {
+            assertThat(n.scope()).isEqualTo("user");
+            assertThat(n.destination()).isEqualTo("/app/chat.sendMessage/room-1");
+            assertThat(n.retryAfterMillis()).isPositive();
+        });
+        assertThat(SimpMessageHeaderAccessor.getSessionId(headers.getValue())).isEqualTo("session-1");
+        assertThat(NativeMessageHeaderAccessor.getFirstNativeHeader(
+                RateLimitErrorHandler.RETRY_AFTER_HEADER, headers.getValue())).isNotBlank();
+        assertThat(NativeMessageHeaderAccessor.getFirstNativeHeader("receipt-id", headers.getValue()))
+                .isEqualTo("r-7");
+        assertThat(registry.get("chat.rate_limit.rejected").tag("scope", "user").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void roomRejectionGivesTheSendersTokenBack() {
+        RateLimitInterceptor interceptor = interceptor(true, 2, 1);
+        interceptor.preSend(send("session-1", "alice", "/app/chat.sendMessage/busy", null), channel);
+
+        assertThat(interceptor.preSend(send("session-1", "alice", "/app/chat.sendMessage/busy", null), channel))
+                .isNull();
+
+        // The refused frame did not use up alice's second token
+        Message<?> other = send("session-1", "alice", "/app/chat.sendMessage/quiet", null);
+        assertThat(interceptor.preSend(other, channel)).isSameAs(other);
+    }
+
+    @Test
+    void disabledLimitPassesEverything() {
+        RateLimitInterceptor interceptor = interceptor(false, 1, 1);
+
+        for (int i = 0; i < 5; i++) {
+            Message<?> message = send("session-1", "alice", "/app/chat.sendMessage/room-1", null);
+            assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RateLimitInterceptor interceptor(boolean enabled, int userBurst, int roomBurst) {
+        ObjectProvider<SimpMessagingTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(messagingTemplate);
+        // Rates low enough that no token comes back during a test
+        return new RateLimitInterceptor(new ChatMetrics(registry), provider, enabled,
+                0.001, userBurst, 0.001, 1, 0.001, roomBurst, 100);
+    }
+
+    private static Message<?> send(String sessionId, String user, String destination, String receipt) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        if (receipt != null) {
+            accessor.setReceipt(receipt);
+        }
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("SPRING_SECURITY_AUTHENTICATION", new TestingAuthenticationToken(user, null));
+        accessor.setSessionAttributes(attributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
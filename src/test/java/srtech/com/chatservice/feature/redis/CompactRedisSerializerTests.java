@@ -0,0 +1,67 @@
+package srtech.com.chatservice.feature.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import srtech.com.chatservice.domain.ChatMessage;
+import srtech.com.chatservice.domain.UserPresence;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.domain.dto.UserPresenceDto;
+import srtech.com.chatservice.feature.kafka.LocalSchemaRegistry;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactRedisSerializerTests {
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(new LocalSchemaRegistry(""));
+    // What wrote every value before this serializer
+    private final GenericJackson2JsonRedisSerializer legacy = new GenericJackson2JsonRedisSerializer();
+
+    @Test
+    void presenceIsWrittenAsCompactAvroAndReadBack() {
+        UserPresenceDto presence = presence();
+
+        byte[] bytes = serializer.serialize(presence);
+
+        assertThat(bytes[0]).isEqualTo((byte) 0xC3);
+        assertThat(bytes[1]).isEqualTo((byte) 0x01);
+        assertThat(bytes.length).isLessThan(legacy.serialize(presence).length);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(presence);
+    }
+
+    @Test
+    void readsPresenceWrittenAsTypedJson() {
+        UserPresenceDto presence = presence();
+
+        assertThat(serializer.deserialize(legacy.serialize(presence))).isEqualTo(presence);
+    }
+
+    @Test
+    void readsRecentMessagesWrittenAsTypedJson() {
+        MessageDto message = new MessageDto("m-1", "room-1", "user-1", "alice", "hello",
+                ChatMessage.MessageType.CHAT, 1_700_000_000_000L, 7L);
+
+        assertThat(serializer.deserialize(legacy.serialize(message))).isEqualTo(message);
+    }
+
+    @Test
+    void numbersAreWrittenPlainSoScriptsCanUseThemAsArguments() {
+        assertThat(new String(serializer.serialize(86400L), StandardCharsets.UTF_8)).isEqualTo("86400");
+        assertThat(new String(serializer.serialize(-1L), StandardCharsets.UTF_8)).isEqualTo("-1");
+        assertThat(new String(serializer.serialize(42), StandardCharsets.UTF_8)).isEqualTo("42");
+    }
+
+    @Test
+    void stringsStayJson() {
+        byte[] bytes = serializer.serialize("session-1");
+
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).isEqualTo("\"session-1\"");
+        assertThat(serializer.deserialize(bytes)).isEqualTo("session-1");
+    }
+
+    private static UserPresenceDto presence() {
+        return new UserPresenceDto("user-1", "alice", "room-1", UserPresence.PresenceStatus.ONLINE,
+                1_700_000_000_000L);
+    }
+}
@@ -0,0 +1,156 @@
+package srtech.com.chatservice.feature.redis;
+
+import com.chatengine.avro.CachedMessageAvro;
+import com.chatengine.avro.MessageType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import srtech.com.chatservice.domain.ChatMessage;
+import srtech.com.chatservice.domain.UserPresence;
+import srtech.com.chatservice.domain.dto.MessageDto;
+import srtech.com.chatservice.domain.dto.UserPresenceDto;
+import srtech.com.chatservice.feature.kafka.LocalSchemaRegistry;
+import srtech.com.chatservice.feature.websocket.AvroMessageConverter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the admission script and the cache reads against an in-process Redis stand-in.
+ */
+class RedisServiceTests {
+
+    private RedisServer server;
+    private JedisConnectionFactory connectionFactory;
+    private RedisService redisService;
+    private final AtomicInteger seedLookups = new AtomicInteger();
+    // What wrote every value before CompactRedisSerializer
+    private final GenericJackson2JsonRedisSerializer legacy = new GenericJackson2JsonRedisSerializer();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = RedisServer.newRedisServer();
+        server.start();
+        connectionFactory = new JedisConnectionFactory(
+                new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new CompactRedisSerializer(new LocalSchemaRegistry("")));
+        template.afterPropertiesSet();
+        redisService = new RedisService(template, new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void redeliveredMessageKeepsItsSequence() {
+        assertThat(redisService.admitMessage("room-1", "m1", true, stored(0))).isEqualTo(1);
+        assertThat(redisService.admitMessage("room-1", "m2", true, stored(0))).isEqualTo(2);
+
+        assertThat(redisService.admitMessage("room-1", "m1", true, stored(0))).isEqualTo(1);
+        assertThat(redisService.admitMessage("room-1", "m3", true, stored(0))).isEqualTo(3);
+    }
+
+    @Test
+    void missingCounterIsSeededFromTheStoredSequenceOnce() {
+        assertThat(redisService.admitMessage("room-1", "m1", true, stored(41))).isEqualTo(42);
+        assertThat(redisService.admitMessage("room-1", "m2", true, stored(41))).isEqualTo(43);
+
+        assertThat(seedLookups.get()).isEqualTo(1);
+    }
+
+    @Test
+    void roomsAreNumberedIndependently() {
+        assertThat(redisService.admitMessage("room-1", "m1", true, stored(0))).isEqualTo(1);
+        assertThat(redisService.admitMessage("room-2", "m2", true, stored(0))).isEqualTo(1);
+    }
+
+    @Test
+    void unsequencedMessageGetsZero() {
+        assertThat(redisService.admitMessage("room-1", "join", false, stored(0))).isZero();
+        assertThat(seedLookups.get()).isZero();
+    }
+
+    @Test
+    void processedMessageIsRejected() {
+        long seq = redisService.admitMessage("room-1", "m1", true, stored(0));
+        redisService.completeMessage(new MessageDto("m1", "room-1", "u1", "alice", "hi",
+                ChatMessage.MessageType.CHAT, 1L, seq), Duration.ofMinutes(1));
+
+        assertThat(redisService.admitMessage("room-1", "m1", true, stored(0))).isEqualTo(-1);
+    }
+
+    @Test
+    void redisFailureFailsSequencedMessagesOnly() throws IOException {
+        server.stop();
+
+        assertThatThrownBy(() -> redisService.admitMessage("room-1", "m1", true, stored(0)))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(redisService.admitMessage("room-1", "join", false, stored(0))).isZero();
+    }
+
+    @Test
+    void readsPresenceCachedAsTypedJson() {
+        UserPresenceDto presence = new UserPresenceDto("user-1", "alice", "room-1",
+                UserPresence.PresenceStatus.ONLINE, 1L);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.stringCommands().set(utf8("presence:user-1"), legacy.serialize(presence));
+        }
+
+        assertThat(redisService.getUserPresence("user-1")).isEqualTo(presence);
+    }
+
+    @Test
+    void recentMessagesMixFragmentsWithEntriesCachedInTheOldFormats() {
+        MessageDto typedJson = message("m-1", 1);
+        MessageDto avro = message("m-2", 2);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] key = utf8("room:messages:room-1");
+            connection.listCommands().rPush(key, legacy.serialize(typedJson));
+            connection.listCommands().rPush(key, AvroMessageConverter.encode(new CachedMessageAvro(
+                    avro.getId(), avro.getRoomId(), avro.getSenderId(), avro.getSenderName(), avro.getContent(),
+                    MessageType.CHAT, avro.getTimestamp(), avro.getSeq())));
+        }
+        MessageDto fragment = message("m-3", 3);
+        redisService.completeMessage(fragment, Duration.ofMinutes(1));
+
+        assertThat(redisService.getRecentMessages("room-1")).containsExactly(fragment, typedJson, avro);
+    }
+
+    private static MessageDto message(String id, long seq) {
+        return new MessageDto(id, "room-1", "u1", "alice", "hi " + id, ChatMessage.MessageType.CHAT, seq, seq);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private LongSupplier stored(long highestSeq) {
+        return () -> {
+            seedLookups.incrementAndGet();
+            return highestSeq;
+        };
+    }
+}
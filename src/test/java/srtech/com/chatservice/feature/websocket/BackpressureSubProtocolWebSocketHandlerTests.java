@@ -0,0 +1,132 @@
+package srtech.com.chatservice.feature.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompSubProtocolHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BackpressureSubProtocolWebSocketHandlerTests {
+
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+
+    private OutboundSessionRegistry registry;
+    private BackpressureSubProtocolWebSocketHandler handler;
+    private WebSocketSession session;
+    private CountDownLatch writing;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        registry = new OutboundSessionRegistry(new ChatMetrics(new SimpleMeterRegistry()),
+                SlowConsumerPolicy.DROP_OLDEST, 10000, 262144, 16384, 10, 1);
+        handler = new BackpressureSubProtocolWebSocketHandler(
+                mock(MessageChannel.class), mock(SubscribableChannel.class), registry);
+        handler.setDefaultProtocolHandler(new StompSubProtocolHandler());
+
+        writing = new CountDownLatch(1);
+        release = new CountDownLatch(0);
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session-1");
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            written.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+
+        handler.afterConnectionEstablished(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        registry.shutdown();
+    }
+
+    @Test
+    void brokerFramesGoThroughTheOutboundQueue() throws Exception {
+        OutboundSessionDecorator outbound = (OutboundSessionDecorator) registry.getSession("session-1");
+        assertThat(outbound.getDelegate()).isSameAs(session);
+
+        release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> handler.handleMessage(brokerMessage("one")));
+        writer.start();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        handler.handleMessage(brokerMessage("two"));
+
+        // The second frame waits in our queue instead of in a Spring decorator
+        assertThat(outbound.getBufferSize()).isPositive();
+        release.countDown();
+        writer.join(5000);
+        assertThat(written).hasSize(2);
+        assertThat(written.get(0)).contains("one");
+        assertThat(written.get(1)).contains("two");
+    }
+
+    /**
+     * A session in a sharded mega-room and a normal room gets frames from RoomBroadcaster's shards, which
+     * write to the session looked up in the registry, and from the broker; both must share one queue.
+     */
+    @Test
+    void shardAndBrokerFramesKeepTheirOrder() throws Exception {
+        release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> handler.handleMessage(brokerMessage("zero")));
+        writer.start();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        handler.handleMessage(brokerMessage("one"));
+        registry.getSession("session-1").sendMessage(new TextMessage("MESSAGE\ndestination:/topic/room/mega\n\nmega\0"));
+        handler.handleMessage(brokerMessage("two"));
+        release.countDown();
+        writer.join(5000);
+
+        assertThat(written).hasSize(4);
+        assertThat(written.get(0)).contains("zero");
+        assertThat(written.get(1)).contains("one");
+        assertThat(written.get(2)).contains("mega");
+        assertThat(written.get(3)).contains("two");
+    }
+
+    @Test
+    void closedSessionIsForgotten() throws Exception {
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        assertThat(registry.getSession("session-1")).isNull();
+    }
+
+    static Message<byte[]> brokerMessage(String body) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId("session-1");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/room/room-1");
+        accessor.setMessageId("m-" + body);
+        return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+}
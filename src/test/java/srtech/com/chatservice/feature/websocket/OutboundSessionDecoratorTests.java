@@ -0,0 +1,237 @@
+package srtech.com.chatservice.feature.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The underlying session blocks every write until released, so frames pile up in the decorator's queue the
+ * way they do for a client that stopped reading.
+ */
+class OutboundSessionDecoratorTests {
+
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private SimpleMeterRegistry registry;
+    private ChatMetrics chatMetrics;
+    private ScheduledExecutorService scheduler;
+    private WebSocketSession delegate;
+    private Thread writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new SimpleMeterRegistry();
+        chatMetrics = new ChatMetrics(registry);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("session-1");
+        when(delegate.getAttributes()).thenReturn(attributes);
+        when(delegate.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            written.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(delegate).sendMessage(any());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        if (writer != null) {
+            writer.join(5000);
+        }
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void dropOldestTrimsTheQueueWhileAWriteIsBlocked() throws Exception {
+        OutboundSessionDecorator session = decorator(SlowConsumerPolicy.DROP_OLDEST, 100);
+        blockWriterOn(session, "first");
+
+        for (int i = 0; i < 20; i++) {
+            session.sendMessage(new TextMessage(frame(i)));
+            assertThat(session.getBufferSize()).isLessThanOrEqualTo(100);
+        }
+        release.countDown();
+        writer.join(5000);
+
+        assertThat(written).containsExactly("first", frame(15), frame(16), frame(17), frame(18), frame(19));
+        assertThat(registry.get("chat.websocket.slow_consumer.dropped_frames").tag("action", "drop_oldest")
+                .counter().count()).isEqualTo(15);
+    }
+
+    @Test
+    void conflationKeepsTheNewestPresencePerUserInOrder() throws Exception {
+        List<String> frames = List.of(
+                presence("u1", "ONLINE"), frame(1), presence("u2", "ONLINE"),
+                presence("u1", "AWAY"), frame(2), presence("u1", "OFFLINE"));
+        int total = frames.stream().mapToInt(frame -> new TextMessage(frame).getPayloadLength()).sum();
+        // Only the last frame takes the queue over the limit
+        OutboundSessionDecorator session = decorator(SlowConsumerPolicy.CONFLATE_PRESENCE, total - 1);
+        blockWriterOn(session, "first");
+
+        for (String frame : frames) {
+            session.sendMessage(new TextMessage(frame));
+        }
+        release.countDown();
+        writer.join(5000);
+
+        assertThat(written).containsExactly("first", frame(1), presence("u2", "ONLINE"), frame(2),
+                presence("u1", "OFFLINE"));
+        assertThat(registry.get("chat.websocket.slow_consumer.dropped_frames").tag("action", "conflate_presence")
+                .counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentSendersAreNotBlockedAndOverflowDisconnectsOnce() throws Exception {
+        OutboundSessionDecorator session = decorator(SlowConsumerPolicy.DISCONNECT, 100);
+        blockWriterOn(session, "first");
+
+        ExecutorService senders = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            senders.execute(() -> IntStream.range(0, 50).forEach(i -> send(session, frame(i))));
+        }
+        senders.shutdown();
+        // Every sender returns while the write is still blocked
+        assertThat(senders.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        verify(delegate, times(1)).close(OutboundSessionDecorator.RESYNC_REQUIRED);
+        assertThat(registry.get("chat.websocket.slow_consumer.actions").tag("action", "disconnect")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void writeBlockedPastTheSendTimeLimitDisconnects() throws Exception {
+        OutboundSessionDecorator session = new OutboundSessionDecorator(
+                delegate, 50, 1000, SlowConsumerPolicy.DROP_OLDEST, 16384, 0, scheduler, chatMetrics);
+        blockWriterOn(session, "first");
+
+        assertThat(session.checkSendTimeLimit()).isFalse();
+        Thread.sleep(100);
+
+        assertThat(session.checkSendTimeLimit()).isTrue();
+        verify(delegate).close(OutboundSessionDecorator.RESYNC_REQUIRED);
+    }
+
+    @Test
+    void framesQueuedBehindAWriteGoOutAsOneMessage() throws Exception {
+        OutboundSessionDecorator session = batchingDecorator(10_000, 16384);
+        blockWriterOn(session, "first");
+        // Negotiated after the first frame, so that one is written at once and blocks
+        attributes.put(FrameBatchingInterceptor.BATCHING_ATTRIBUTE, Boolean.TRUE);
+
+        for (int i = 0; i < 5; i++) {
+            session.sendMessage(new TextMessage(frame(i)));
+        }
+        release.countDown();
+        writer.join(5000);
+
+        assertThat(written).containsExactly("first", frame(0) + frame(1) + frame(2) + frame(3) + frame(4));
+    }
+
+    @Test
+    void batchIsHeldForTheWindow() throws Exception {
+        attributes.put(FrameBatchingInterceptor.BATCHING_ATTRIBUTE, Boolean.TRUE);
+        release.countDown();
+        OutboundSessionDecorator session = batchingDecorator(200, 16384);
+
+        for (int i = 0; i < 5; i++) {
+            session.sendMessage(new TextMessage(frame(i)));
+        }
+        assertThat(written).isEmpty();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (written.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(written).containsExactly(frame(0) + frame(1) + frame(2) + frame(3) + frame(4));
+    }
+
+    @Test
+    void fullBatchIsWrittenWithoutWaitingForTheWindow() throws Exception {
+        attributes.put(FrameBatchingInterceptor.BATCHING_ATTRIBUTE, Boolean.TRUE);
+        release.countDown();
+        OutboundSessionDecorator session = batchingDecorator(10_000, 60);
+
+        for (int i = 0; i < 3; i++) {
+            session.sendMessage(new TextMessage(frame(i)));
+        }
+
+        assertThat(written).containsExactly(frame(0) + frame(1) + frame(2));
+    }
+
+    @Test
+    void sessionsWithoutBatchingAreWrittenFrameByFrame() throws Exception {
+        release.countDown();
+        OutboundSessionDecorator session = batchingDecorator(10_000, 16384);
+
+        session.sendMessage(new TextMessage(frame(0)));
+        session.sendMessage(new TextMessage(frame(1)));
+
+        assertThat(written).containsExactly(frame(0), frame(1));
+    }
+
+    private OutboundSessionDecorator batchingDecorator(long batchWindowMillis, int batchMaxBytes) {
+        return new OutboundSessionDecorator(delegate, 10000, 262144, SlowConsumerPolicy.DROP_OLDEST, batchMaxBytes,
+                batchWindowMillis, scheduler, chatMetrics);
+    }
+
+    private OutboundSessionDecorator decorator(SlowConsumerPolicy policy, int bufferSizeLimit) {
+        return new OutboundSessionDecorator(delegate, 10000, bufferSizeLimit, policy, 16384, 0, scheduler, chatMetrics);
+    }
+
+    private void blockWriterOn(OutboundSessionDecorator session, String payload) throws InterruptedException {
+        writer = new Thread(() -> send(session, payload));
+        writer.start();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static void send(WebSocketSession session, String payload) {
+        try {
+            session.sendMessage(new TextMessage(payload));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String presence(String userId, String status) {
+        return "MESSAGE\ndestination:/topic/room/room-1/presence\nsubscription:sub-0\n\n"
+                + "{\"userId\":\"" + userId + "\",\"status\":\"" + status + "\"}\0";
+    }
+
+    /**
+     * Twenty bytes each.
+     */
+    private static String frame(int i) {
+        return String.format("frame-%014d", i);
+    }
+}
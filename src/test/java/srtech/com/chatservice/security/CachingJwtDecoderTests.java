@@ -0,0 +1,95 @@
+package srtech.com.chatservice.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingJwtDecoderTests {
+
+    private JwtDecoder delegate;
+    private TokenRevocationService revocationService;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(JwtDecoder.class);
+        revocationService = mock(TokenRevocationService.class);
+        decoder = new CachingJwtDecoder(delegate, revocationService, 2);
+    }
+
+    @Test
+    void verifiedTokenIsServedFromTheCache() {
+        Jwt jwt = jwt("token-1", Instant.now().plusSeconds(300));
+        when(delegate.decode("token-1")).thenReturn(jwt);
+
+        assertThat(decoder.decode("token-1")).isSameAs(jwt);
+        assertThat(decoder.decode("token-1")).isSameAs(jwt);
+
+        verify(delegate, times(1)).decode("token-1");
+    }
+
+    @Test
+    void revokedTokenIsRejectedOnFirstVerification() {
+        when(delegate.decode("token-1")).thenReturn(jwt("token-1", Instant.now().plusSeconds(300)));
+        when(revocationService.isRevoked(TokenRevocationService.hash("token-1"))).thenReturn(true);
+
+        assertThatThrownBy(() -> decoder.decode("token-1")).isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    void cachedTokenIsRejectedOnceRevoked() {
+        when(delegate.decode("token-1")).thenReturn(jwt("token-1", Instant.now().plusSeconds(300)));
+        decoder.decode("token-1");
+
+        when(revocationService.isRevokedLocally(TokenRevocationService.hash("token-1"))).thenReturn(true);
+
+        assertThatThrownBy(() -> decoder.decode("token-1")).isInstanceOf(BadJwtException.class);
+    }
+
+    @Test
+    void expiredEntryIsVerifiedAgain() {
+        when(delegate.decode("token-1")).thenReturn(jwt("token-1", Instant.now().minusSeconds(1)));
+        decoder.decode("token-1");
+
+        decoder.decode("token-1");
+
+        verify(delegate, times(2)).decode("token-1");
+    }
+
+    @Test
+    void leastRecentlyUsedTokenIsEvicted() {
+        Instant expiresAt = Instant.now().plusSeconds(300);
+        when(delegate.decode(anyString())).thenAnswer(invocation -> jwt(invocation.getArgument(0), expiresAt));
+        decoder.decode("token-1");
+        decoder.decode("token-2");
+        decoder.decode("token-1");
+
+        decoder.decode("token-3");
+        decoder.decode("token-1");
+        decoder.decode("token-2");
+
+        verify(delegate, times(1)).decode("token-1");
+        verify(delegate, times(2)).decode("token-2");
+    }
+
+    private static Jwt jwt(String tokenValue, Instant expiresAt) {
+        return Jwt.withTokenValue(tokenValue)
+                .header("alg", "RS256")
+                .subject("alice")
+                .issuedAt(expiresAt.minusSeconds(600))
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package srtech.com.chatservice.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import srtech.com.chatservice.feature.metrics.ChatMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private SimpleMeterRegistry registry;
+    private PasswordHashingService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // One thread and one queue slot per pool
+        service = new PasswordHashingService(new BCryptPasswordEncoder(4), new ChatMetrics(registry), 1, 1, 1, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void fullHashingQueueIsRefusedWith503AndRetryAfter() {
+        service.submit(this::block);
+        service.submit(this::block);
+
+        CompletableFuture<String> refused = service.encode("secret");
+
+        assertThat(refused).isCompletedExceptionally();
+        assertThatThrownBy(refused::join).hasCauseInstanceOf(PasswordHashingRejectedException.class);
+        assertRejection(refused);
+        assertThat(registry.get("chat.password_hashing.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void fullFollowUpQueueFailsTheContinuationWith503() throws Exception {
+        service.followUpExecutor().execute(this::block);
+        service.followUpExecutor().execute(this::block);
+
+        CompletableFuture<String> refused = service.encode("secret")
+                .thenApplyAsync(hash -> hash, service.followUpExecutor());
+
+        assertThat(refused).failsWithin(5, TimeUnit.SECONDS);
+        assertRejection(refused);
+    }
+
+    @Test
+    void followUpRunsOffTheHashingPool() throws Exception {
+        String thread = service.encode("secret")
+                .thenApplyAsync(hash -> Thread.currentThread().getName(), service.followUpExecutor())
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(thread).startsWith("password-follow-up-");
+    }
+
+    private static void assertRejection(CompletableFuture<?> future) {
+        Throwable cause = future.handle((value, e) -> e instanceof CompletionException ? e.getCause() : e).join();
+        assertThat(cause).isInstanceOf(PasswordHashingRejectedException.class);
+        PasswordHashingRejectedException rejection = (PasswordHashingRejectedException) cause;
+        assertThat(rejection.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejection.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+    }
+
+    private String block() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}